@@ -1,14 +1,20 @@
 package com.box.view;
 
-import java.text.DateFormat;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Map;
-import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.http.HttpEntity;
 
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+
 /**
  * Acts as a base class for the different Box View APIs.
  */
@@ -23,6 +29,65 @@ public abstract class Base {
      */
     protected BoxViewClient client;
 
+    /**
+     * Turns an API response into a result, and may fail while doing so.
+     */
+    protected interface Parser<T, R> {
+        /**
+         * Parse an API response.
+         *
+         * @param response The API response.
+         *
+         * @return The parsed result.
+         * @throws BoxViewException
+         */
+        R parse(T response) throws BoxViewException;
+    }
+
+    /**
+     * Thrown by a type adapter that finds an error response where it expected
+     * an object, so that the server's message can be reported.
+     */
+    static final class ServerErrorResponse extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Create the exception.
+         *
+         * @param message The message of the error response.
+         */
+        ServerErrorResponse(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Wait for a future result, and throw the BoxViewException it failed with.
+     *
+     * @param future The future result.
+     *
+     * @return The result.
+     * @throws BoxViewException
+     */
+    protected static <T> T await(CompletableFuture<T> future)
+                     throws BoxViewException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BoxViewException) {
+                throw (BoxViewException) e.getCause();
+            }
+
+            error(Request.HTTP_CLIENT_ERROR, e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            String message = "The call was interrupted.";
+            error(Request.REQUEST_INTERRUPTED_ERROR, message);
+        }
+
+        return null;
+    }
+
     /**
      * Take a date object, and return a date string that is formatted as an
      * RFC 3339 timestamp.
@@ -32,10 +97,7 @@ public abstract class Base {
      * @return An RFC 3339 timestamp.
      */
     protected static String date(Date date) {
-        String format              = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
-        SimpleDateFormat isoFormat = new SimpleDateFormat(format);
-        isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-        return isoFormat.format(date);
+        return DateCodec.format(date);
     }
 
     /**
@@ -70,28 +132,53 @@ public abstract class Base {
      * Take a date object or date string in RFC 3339 format, and return a date
      * object.
      *
-     * @param dateString A date string in RFC 3339 format.
+     * @param dateString A date string in RFC 3339 format, with or without
+     *                   milliseconds.
      *
-     * @return The date representation of the dateString.
+     * @return The date representation of the dateString, or null if it isn't
+     *         in RFC 3339 format.
      */
     protected static Date parseDate(String dateString) {
-        Date date;
+        return DateCodec.parse(dateString);
+    }
 
-        try {
-            String format         = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
-            DateFormat dateFormat = new SimpleDateFormat(format);
-            date                  = dateFormat.parse(dateString);
-        } catch (ParseException e) {
-            try {
-                String format         = "yyyy-MM-dd'T'HH:mm:ss'Z'";
-                DateFormat dateFormat = new SimpleDateFormat(format);
-                date                  = dateFormat.parse(dateString);
-            } catch (ParseException e2) {
-                date = null;
-            }
+    /**
+     * Read a typed object from a JSON response as a stream.
+     *
+     * @param response The HttpEntity of the JSON response.
+     * @param adapter Reads the typed object.
+     *
+     * @return The typed object.
+     * @throws BoxViewException
+     */
+    protected static <T> T readJson(HttpEntity response, TypeAdapter<T> adapter)
+                     throws BoxViewException {
+        T value = null;
+
+        if (response == null) {
+            error(Request.JSON_RESPONSE_ERROR, "The response has no body.");
+        }
+
+        try (JsonReader reader = new JsonReader(
+                                     new InputStreamReader(
+                                         response.getContent(),
+                                         StandardCharsets.UTF_8))) {
+            value = adapter.read(reader);
+        } catch (ServerErrorResponse e) {
+            error(Request.SERVER_ERROR, e.getMessage());
+        } catch (IOException e) {
+            error(Request.JSON_RESPONSE_ERROR, e.getMessage());
+        } catch (IllegalStateException e) {
+            error(Request.JSON_RESPONSE_ERROR, e.getMessage());
+        } catch (JsonParseException e) {
+            error(Request.JSON_RESPONSE_ERROR, e.getMessage());
         }
 
-        return date;
+        if (value == null) {
+            error(Request.JSON_RESPONSE_ERROR, "The response is empty.");
+        }
+
+        return value;
     }
 
     /**
@@ -108,10 +195,10 @@ public abstract class Base {
      * @throws BoxViewException
      */
     protected static HttpEntity requestHttpEntity(
-                                             BoxViewClient client,
-                                             String path,
-                                             Map<String, Object> getParams,
-                                             Map<String, Object> postParams,
+                                            BoxViewClient client,
+                                            String path,
+                                            Map<String, Object> getParams,
+                                            Map<String, Object> postParams,
                                              Map<String, Object> requestOptions)
                      throws BoxViewException {
         requestOptions.put("rawResponse", true);
@@ -121,6 +208,111 @@ public abstract class Base {
                                                             requestOptions);
     }
 
+    /**
+     * Parse the result of a future API response, failing the returned future
+     * if the parser throws.
+     *
+     * @param response The future API response.
+     * @param parser Turns the API response into a result.
+     *
+     * @return A future completed with the parsed result.
+     */
+    protected static <T, R> CompletableFuture<R> parseAsync(
+                                                CompletableFuture<T> response,
+                                                Parser<T, R> parser) {
+        return response.thenCompose(value -> {
+            CompletableFuture<R> result = new CompletableFuture<R>();
+
+            try {
+                result.complete(parser.parse(value));
+            } catch (BoxViewException e) {
+                result.completeExceptionally(e);
+            }
+
+            return result;
+        });
+    }
+
+    /**
+     * Send a new request to the API asynchronously and return a future
+     * HttpEntity.
+     *
+     * @param client The client instance to make requests from.
+     * @param path The path to make a request to.
+     * @param getParams A key-value pair of GET params to be added to the URL.
+     * @param postParams A key-value pair of POST params to be sent in the body.
+     * @param requestOptions A key-value pair of request options that may modify
+     *                       the way the request is made.
+     *
+     * @return The response is pass-thru from Request.
+     */
+    protected static CompletableFuture<HttpEntity> requestHttpEntityAsync(
+                                           BoxViewClient client,
+                                           String path,
+                                           Map<String, Object> getParams,
+                                           Map<String, Object> postParams,
+                                           Map<String, Object> requestOptions) {
+        requestOptions.put("rawResponse", true);
+        return client.getRequestHandler()
+                     .requestHttpEntityAsync(path,
+                                             getParams,
+                                             postParams,
+                                             requestOptions);
+    }
+
+    /**
+     * Send a new request to the API and return the HttpEntity of its JSON
+     * response, so that it can be parsed as a stream.
+     *
+     * @param client The client instance to make requests from.
+     * @param path The path to make a request to.
+     * @param getParams A key-value pair of GET params to be added to the URL.
+     * @param postParams A key-value pair of POST params to be sent in the body.
+     * @param requestOptions A key-value pair of request options that may modify
+     *                       the way the request is made.
+     *
+     * @return The response is pass-thru from Request.
+     * @throws BoxViewException
+     */
+    protected static HttpEntity requestJsonEntity(
+                                            BoxViewClient client,
+                                            String path,
+                                            Map<String, Object> getParams,
+                                            Map<String, Object> postParams,
+                                            Map<String, Object> requestOptions)
+                     throws BoxViewException {
+        return client.getRequestHandler().requestHttpEntity(path,
+                                                            getParams,
+                                                            postParams,
+                                                            requestOptions);
+    }
+
+    /**
+     * Send a new request to the API asynchronously and return the future
+     * HttpEntity of its JSON response, so that it can be parsed as a stream.
+     *
+     * @param client The client instance to make requests from.
+     * @param path The path to make a request to.
+     * @param getParams A key-value pair of GET params to be added to the URL.
+     * @param postParams A key-value pair of POST params to be sent in the body.
+     * @param requestOptions A key-value pair of request options that may modify
+     *                       the way the request is made.
+     *
+     * @return The response is pass-thru from Request.
+     */
+    protected static CompletableFuture<HttpEntity> requestJsonEntityAsync(
+                                           BoxViewClient client,
+                                           String path,
+                                           Map<String, Object> getParams,
+                                           Map<String, Object> postParams,
+                                           Map<String, Object> requestOptions) {
+        return client.getRequestHandler()
+                     .requestHttpEntityAsync(path,
+                                             getParams,
+                                             postParams,
+                                             requestOptions);
+    }
+
     /**
      * Send a new request to the API and return a key-value pair.
      *
@@ -135,10 +327,10 @@ public abstract class Base {
      * @throws BoxViewException
      */
     protected static Map<String, Object> requestJson(
-                                             BoxViewClient client,
-                                             String path,
-                                             Map<String, Object> getParams,
-                                             Map<String, Object> postParams,
+                                            BoxViewClient client,
+                                            String path,
+                                            Map<String, Object> getParams,
+                                            Map<String, Object> postParams,
                                              Map<String, Object> requestOptions)
                      throws BoxViewException {
         return client.getRequestHandler().requestJson(path,
@@ -146,4 +338,29 @@ public abstract class Base {
                                                       postParams,
                                                       requestOptions);
     }
+
+    /**
+     * Send a new request to the API asynchronously and return a future
+     * key-value pair.
+     *
+     * @param client The client instance to make requests from.
+     * @param path The path to make a request to.
+     * @param getParams A key-value pair of GET params to be added to the URL.
+     * @param postParams A key-value pair of POST params to be sent in the body.
+     * @param requestOptions A key-value pair of request options that may modify
+     *                       the way the request is made.
+     *
+     * @return The response is pass-thru from Request.
+     */
+    protected static CompletableFuture<Map<String, Object>> requestJsonAsync(
+                                           BoxViewClient client,
+                                           String path,
+                                           Map<String, Object> getParams,
+                                           Map<String, Object> postParams,
+                                           Map<String, Object> requestOptions) {
+        return client.getRequestHandler().requestJsonAsync(path,
+                                                           getParams,
+                                                           postParams,
+                                                           requestOptions);
+    }
 }
@@ -1,31 +1,87 @@
 package com.box.view;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.text.ParseException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+
+import org.apache.http.pool.PoolStats;
 
 /**
- * Provides access to the Box View API.
+ * Provides access to the Box View API. The client keeps a pool of connections
+ * open to the API, so create one per application, share it between threads,
+ * and close it when you're done with it.
  */
-public class BoxViewClient {
+public class BoxViewClient implements Closeable {
     /**
      * The developer's Box View API key.
      */
     private String apiKey;
 
+    /**
+     * The maximum number of pooled connections across all hosts.
+     */
+    private Integer maxConnections;
+
+    /**
+     * The maximum number of pooled connections to a single host.
+     */
+    private Integer maxConnectionsPerRoute;
+
     /**
      * The request handler.
      */
     private Request requestHandler;
 
+    /**
+     * The cache of document metadata, or null to always request it.
+     */
+    private volatile DocumentCache documentCache;
+
     /**
      * Instantiate the client.
      *
      * @param apiKey The API key to use.
      */
     public BoxViewClient(String apiKey) {
+        this(apiKey,
+             Request.DEFAULT_MAX_CONNECTIONS,
+             Request.DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+    }
+
+    /**
+     * Instantiate the client with specific connection pool limits.
+     *
+     * @param apiKey The API key to use.
+     * @param maxConnections The maximum number of pooled connections across
+     *                       all hosts.
+     * @param maxConnectionsPerRoute The maximum number of pooled connections
+     *                               to a single host.
+     */
+    public BoxViewClient(String apiKey,
+                         Integer maxConnections,
+                         Integer maxConnectionsPerRoute) {
         setApiKey(apiKey);
+        this.maxConnections         = maxConnections;
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    /**
+     * Close the pooled connections held by the request handler.
+     *
+     * @return void
+     */
+    public synchronized void close() {
+        if (requestHandler != null) {
+            requestHandler.close();
+        }
     }
 
     /**
@@ -61,6 +117,101 @@ public class BoxViewClient {
         return Document.find(this, params);
     }
 
+    /**
+     * Get every document, newest first, requesting them a page at a time as
+     * they're iterated over.
+     *
+     * @return The documents, which are requested again every time they're
+     *         iterated over.
+     */
+    public Iterable<Document> findAllDocuments() {
+        return Document.findAll(this);
+    }
+
+    /**
+     * Get every document that meets the provided criteria, newest first,
+     * requesting them a page at a time as they're iterated over.
+     *
+     * @param params A key-value pair to filter the documents by. None are
+     *               necessary; all are optional. Use the following options:
+     *                  - int|null 'limit' The number of documents to request
+     *                    per page.
+     *                  - string|Date|null 'createdBefore' Upper date limit to
+     *                    filter by.
+     *                  - string|Date|null 'createdAfter' Lower date limit to
+     *                    filter by.
+     *
+     * @return The documents, which are requested again every time they're
+     *         iterated over.
+     */
+    public Iterable<Document> findAllDocuments(Map<String, Object> params) {
+        return Document.findAll(this, params);
+    }
+
+    /**
+     * Get every document created in a time range, by splitting the range into
+     * shards and requesting several of them at once.
+     *
+     * @param params A key-value pair of options. Use the following options:
+     *                  - string|Date 'createdAfter' Lower date limit to filter
+     *                    by, which is required.
+     *                  - string|Date|null 'createdBefore' Upper date limit to
+     *                    filter by, which defaults to now.
+     *                  - int|null 'limit' The number of documents to request
+     *                    per shard.
+     *                  - int|null 'parallelism' The maximum number of shards
+     *                    to request at once.
+     *                  - bool|null 'ordered' Sort the documents newest first?
+     *                    Defaults to true.
+     *
+     * @return An array containing the document instances.
+     * @throws BoxViewException
+     */
+    public List<Document> findDocumentsInParallel(Map<String, Object> params)
+           throws BoxViewException {
+        return Document.findParallel(this, params);
+    }
+
+    /**
+     * Get every document created in a time range asynchronously, by splitting
+     * the range into shards and requesting several of them at once.
+     *
+     * @param params A key-value pair of options. See findDocumentsInParallel()
+     *               for the available options.
+     *
+     * @return A future completed with the document instances.
+     */
+    public CompletableFuture<List<Document>> findDocumentsInParallelAsync(
+                                                Map<String, Object> params) {
+        return Document.findParallelAsync(this, params);
+    }
+
+    /**
+     * Get a list of all documents asynchronously.
+     *
+     * @return A future completed with a list of all documents.
+     */
+    public CompletableFuture<List<Document>> findDocumentsAsync() {
+        return Document.findAsync(this);
+    }
+
+    /**
+     * Get a list of all documents that meet the provided criteria
+     * asynchronously.
+     *
+     * @param params A key-value pair to filter the list of all documents
+     *               uploaded. See findDocuments() for the available options.
+     *
+     * @return A future completed with document instances matching the
+     *         request.
+     * @throws ParseException
+     */
+    public CompletableFuture<List<Document>> findDocumentsAsync(
+                                                    Map<String, Object> params)
+                                             throws ParseException {
+        return Document.findAsync(this, params);
+    }
+
     /**
      * Get the API key.
      *
@@ -70,6 +221,15 @@ public class BoxViewClient {
         return apiKey;
     }
 
+    /**
+     * Get the cache of document metadata.
+     *
+     * @return The document cache, or null if there is none.
+     */
+    public DocumentCache getDocumentCache() {
+        return documentCache;
+    }
+
     /**
      * Create a new document instance by ID, and load it with values requested
      * from the API.
@@ -83,14 +243,50 @@ public class BoxViewClient {
         return Document.get(this, id);
     }
 
+    /**
+     * Create a new document instance by ID, and load it with values requested
+     * from the API asynchronously.
+     *
+     * @param id The document ID.
+     *
+     * @return A future completed with a document instance using data from the
+     *         API.
+     */
+    public CompletableFuture<Document> getDocumentAsync(String id) {
+        return Document.getAsync(this, id);
+    }
+
+    /**
+     * Get the statistics of the connection pool across all hosts.
+     *
+     * @return The number of leased, pending, and available connections.
+     */
+    public PoolStats getPoolStats() {
+        return getRequestHandler().getPoolStats();
+    }
+
+    /**
+     * Get the statistics of the connection pool for a single host.
+     *
+     * @param hostName The host, such as Request.HOST or
+     *                 Document.FILE_UPLOAD_HOST.
+     *
+     * @return The number of leased, pending, and available connections.
+     */
+    public PoolStats getPoolStats(String hostName) {
+        return getRequestHandler().getPoolStats(hostName);
+    }
+
     /**
      * Return the request handler.
      *
      * @return The request handler.
      */
-    public Request getRequestHandler() {
+    public synchronized Request getRequestHandler() {
         if (requestHandler == null) {
-            setRequestHandler(new Request(getApiKey()));
+            setRequestHandler(new Request(getApiKey(),
+                                          maxConnections,
+                                          maxConnectionsPerRoute));
         }
 
         return requestHandler;
@@ -108,16 +304,177 @@ public class BoxViewClient {
     }
 
     /**
-     * Set the request handler.
+     * Set whether files uploaded through this client are read through a
+     * FileChannel and sent in large writes, instead of being copied through a
+     * small stream buffer. This makes uploads of large files cheaper. Off by
+     * default.
+     *
+     * @param channelUploads Should files be uploaded in large chunks?
+     *
+     * @return void
+     */
+    public void setChannelUploads(boolean channelUploads) {
+        getRequestHandler().setChannelUploads(channelUploads);
+    }
+
+    /**
+     * Set the circuit breaker for a host, which is shared by every call made
+     * through this client. Use getState() on the breaker to see whether it's
+     * open.
+     *
+     * @param hostName The host, such as Request.HOST or
+     *                 Document.FILE_UPLOAD_HOST.
+     * @param circuitBreaker The circuit breaker, or null to remove it.
+     *
+     * @return void
+     */
+    public void setCircuitBreaker(String hostName,
+                                  CircuitBreaker circuitBreaker) {
+        getRequestHandler().setCircuitBreaker(hostName, circuitBreaker);
+    }
+
+    /**
+     * Set whether concurrent identical GET calls made through this client are
+     * coalesced, such as many threads getting the same document or thumbnail
+     * at once. When they are, only one of the calls is sent, and its response
+     * is shared with the others. Off by default.
+     *
+     * @param coalescing Should identical GET calls be coalesced?
+     *
+     * @return void
+     */
+    public void setCoalescing(boolean coalescing) {
+        getRequestHandler().setCoalescing(coalescing);
+    }
+
+    /**
+     * Set the limiter of how many calls made through this client are in
+     * flight at once. Use getLimit() on the limiter to see the limit it has
+     * learned.
+     *
+     * @param concurrencyLimiter The concurrency limiter, or null to remove the
+     *                           limit.
+     *
+     * @return void
+     */
+    public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        getRequestHandler().setConcurrencyLimiter(concurrencyLimiter);
+    }
+
+    /**
+     * Set the cache of document metadata, which getDocument() reads from
+     * before making a request. Off by default.
+     *
+     * @param documentCache The document cache, or null to always request
+     *                      document metadata.
+     *
+     * @return void
+     */
+    public void setDocumentCache(DocumentCache documentCache) {
+        this.documentCache = documentCache;
+    }
+
+    /**
+     * Set the executor that runs asynchronous requests. By default, a pool
+     * with one thread per pooled connection is used.
+     *
+     * @param executor The executor to run asynchronous requests on.
+     *
+     * @return void
+     */
+    public void setExecutor(ExecutorService executor) {
+        getRequestHandler().setExecutor(executor);
+    }
+
+    /**
+     * Set the maximum number of pooled connections to a single host.
+     *
+     * @param hostName The host, such as Request.HOST or
+     *                 Document.FILE_UPLOAD_HOST.
+     * @param maxConnections The maximum number of pooled connections.
+     *
+     * @return void
+     */
+    public void setMaxConnectionsPerRoute(String hostName,
+                                          Integer maxConnections) {
+        getRequestHandler().setMaxConnectionsPerRoute(hostName, maxConnections);
+    }
+
+    /**
+     * Set the rate limiter for a class of endpoints, which is shared by every
+     * call made through this client.
+     *
+     * @param endpoint The class of endpoints, which can be
+     *                 Request.CONTENT_ENDPOINT, Request.METADATA_ENDPOINT,
+     *                 Request.SESSION_ENDPOINT, or Request.UPLOAD_ENDPOINT.
+     * @param rateLimiter The rate limiter, or null to remove the limit.
+     *
+     * @return void
+     */
+    public void setRateLimiter(String endpoint, RateLimiter rateLimiter) {
+        getRequestHandler().setRateLimiter(endpoint, rateLimiter);
+    }
+
+    /**
+     * Set the policy for retrying transient errors, such as connection
+     * failures and 5xx responses. By default, GET, PUT and DELETE calls are
+     * retried, and uploads and session creation are not.
+     *
+     * @param retryPolicy The retry policy, or null to never retry them.
+     *
+     * @return void
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        getRequestHandler().setRetryPolicy(retryPolicy);
+    }
+
+    /**
+     * Set the request handler. The previous request handler is not closed.
      *
      * @param requestHandler The request handler.
      *
      * @return void
      */
-    public void setRequestHandler(Request requestHandler) {
+    public synchronized void setRequestHandler(Request requestHandler) {
         this.requestHandler = requestHandler;
     }
 
+    /**
+     * Set the listener that receives the progress of uploads and downloads
+     * through this client, with the bytes moved so far and the rate. Without
+     * one, which is the default, transfers aren't tracked at all.
+     *
+     * @param transferListener The listener, or null to remove it.
+     *
+     * @return void
+     */
+    public void setTransferListener(TransferListener transferListener) {
+        getRequestHandler().setTransferListener(transferListener);
+    }
+
+    /**
+     * Get a stream of every document, newest first, requesting them a page at
+     * a time as the stream is consumed.
+     *
+     * @return A sequential stream of the documents.
+     */
+    public Stream<Document> streamDocuments() {
+        return Document.stream(this);
+    }
+
+    /**
+     * Get a stream of every document that meets the provided criteria, newest
+     * first, requesting them a page at a time as the stream is consumed.
+     *
+     * @param params A key-value pair to filter the documents by. See
+     *               findAllDocuments() for the available options.
+     *
+     * @return A sequential stream of the documents.
+     */
+    public Stream<Document> streamDocuments(Map<String, Object> params) {
+        return Document.stream(this, params);
+    }
+
     /**
      * Upload a local file and return a new document instance.
      *
@@ -191,5 +548,220 @@ public class BoxViewClient {
            throws BoxViewException {
         return Document.upload(this, url, params);
     }
-}
 
+    /**
+     * Upload a file from a stream and return a new document instance.
+     *
+     * @param stream The contents of the file, which are streamed into the
+     *               upload as they're read. The stream is closed once it has
+     *               been sent, and the upload is never retried.
+     * @param filename The name of the file.
+     * @param length The number of bytes in the stream, or -1 if it isn't
+     *               known, in which case the upload is sent in chunks.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See upload() for the available options.
+     *
+     * @return A new document instance.
+     * @throws BoxViewException
+     */
+    public Document upload(InputStream stream,
+                           String filename,
+                           long length,
+                           Map<String, Object> params)
+           throws BoxViewException {
+        return Document.upload(this, stream, filename, length, params);
+    }
+
+    /**
+     * Upload a file from a channel and return a new document instance.
+     *
+     * @param channel The contents of the file, which are streamed into the
+     *                upload as they're read. The channel is closed once it has
+     *                been sent, and the upload is never retried.
+     * @param filename The name of the file.
+     * @param length The number of bytes in the channel, or -1 if it isn't
+     *               known, in which case the upload is sent in chunks.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See upload() for the available options.
+     *
+     * @return A new document instance.
+     * @throws BoxViewException
+     */
+    public Document upload(ReadableByteChannel channel,
+                           String filename,
+                           long length,
+                           Map<String, Object> params)
+           throws BoxViewException {
+        return Document.upload(this, channel, filename, length, params);
+    }
+
+    /**
+     * Upload a file from memory and return a new document instance.
+     *
+     * @param content The contents of the file.
+     * @param filename The name of the file.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See upload() for the available options.
+     *
+     * @return A new document instance.
+     * @throws BoxViewException
+     */
+    public Document upload(byte[] content,
+                           String filename,
+                           Map<String, Object> params)
+           throws BoxViewException {
+        return Document.upload(this, content, filename, params);
+    }
+
+    /**
+     * Upload a file from a buffer and return a new document instance.
+     *
+     * @param content The contents of the file, from its position to its
+     *                limit. Its position isn't changed.
+     * @param filename The name of the file.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See upload() for the available options.
+     *
+     * @return A new document instance.
+     * @throws BoxViewException
+     */
+    public Document upload(ByteBuffer content,
+                           String filename,
+                           Map<String, Object> params)
+           throws BoxViewException {
+        return Document.upload(this, content, filename, params);
+    }
+
+    /**
+     * Upload a local file asynchronously and return a future document
+     * instance.
+     *
+     * @param file The file resource to upload.
+     *
+     * @return A future completed with a new document instance.
+     */
+    public CompletableFuture<Document> uploadAsync(File file) {
+        return Document.uploadAsync(this, file);
+    }
+
+    /**
+     * Upload a local file asynchronously and return a future document
+     * instance.
+     *
+     * @param file The file resource to upload.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See upload() for the available options.
+     *
+     * @return A future completed with a new document instance.
+     */
+    public CompletableFuture<Document> uploadAsync(File file,
+                                                   Map<String, Object> params) {
+        return Document.uploadAsync(this, file, params);
+    }
+
+    /**
+     * Upload a file by URL asynchronously and return a future document
+     * instance.
+     *
+     * @param url The URL of the file to upload.
+     *
+     * @return A future completed with a new document instance.
+     */
+    public CompletableFuture<Document> uploadAsync(String url) {
+        return Document.uploadAsync(this, url);
+    }
+
+    /**
+     * Upload a file by URL asynchronously and return a future document
+     * instance.
+     *
+     * @param url The URL of the file to upload.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See upload() for the available options.
+     *
+     * @return A future completed with a new document instance.
+     */
+    public CompletableFuture<Document> uploadAsync(String url,
+                                                   Map<String, Object> params) {
+        return Document.uploadAsync(this, url, params);
+    }
+
+    /**
+     * Upload a file from a stream asynchronously and return a future document
+     * instance.
+     *
+     * @param stream The contents of the file, which are streamed into the
+     *               upload as they're read. The stream is closed once it has
+     *               been sent, and the upload is never retried.
+     * @param filename The name of the file.
+     * @param length The number of bytes in the stream, or -1 if it isn't
+     *               known, in which case the upload is sent in chunks.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See upload() for the available options.
+     *
+     * @return A future completed with a new document instance.
+     */
+    public CompletableFuture<Document> uploadAsync(InputStream stream,
+                                                   String filename,
+                                                   long length,
+                                                   Map<String, Object> params) {
+        return Document.uploadAsync(this, stream, filename, length, params);
+    }
+
+    /**
+     * Upload a file from a channel asynchronously and return a future document
+     * instance.
+     *
+     * @param channel The contents of the file, which are streamed into the
+     *                upload as they're read. The channel is closed once it has
+     *                been sent, and the upload is never retried.
+     * @param filename The name of the file.
+     * @param length The number of bytes in the channel, or -1 if it isn't
+     *               known, in which case the upload is sent in chunks.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See upload() for the available options.
+     *
+     * @return A future completed with a new document instance.
+     */
+    public CompletableFuture<Document> uploadAsync(ReadableByteChannel channel,
+                                                   String filename,
+                                                   long length,
+                                                   Map<String, Object> params) {
+        return Document.uploadAsync(this, channel, filename, length, params);
+    }
+
+    /**
+     * Upload a file from memory asynchronously and return a future document
+     * instance.
+     *
+     * @param content The contents of the file.
+     * @param filename The name of the file.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See upload() for the available options.
+     *
+     * @return A future completed with a new document instance.
+     */
+    public CompletableFuture<Document> uploadAsync(byte[] content,
+                                                   String filename,
+                                                   Map<String, Object> params) {
+        return Document.uploadAsync(this, content, filename, params);
+    }
+
+    /**
+     * Upload a file from a buffer asynchronously and return a future document
+     * instance.
+     *
+     * @param content The contents of the file, from its position to its
+     *                limit. Its position isn't changed.
+     * @param filename The name of the file.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See upload() for the available options.
+     *
+     * @return A future completed with a new document instance.
+     */
+    public CompletableFuture<Document> uploadAsync(ByteBuffer content,
+                                                   String filename,
+                                                   Map<String, Object> params) {
+        return Document.uploadAsync(this, content, filename, params);
+    }
+}
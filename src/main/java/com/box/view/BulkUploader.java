@@ -0,0 +1,610 @@
+package com.box.view;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Uploads every file in a directory tree, a bounded number at a time, and
+ * keeps a manifest of what has been uploaded so that an interrupted run can
+ * be resumed.
+ *
+ * The manifest is an append-only file with one JSON line per upload,
+ * recording the file's path, size and modification time, the ID of the new
+ * document, and whether the upload succeeded. A line is written as soon as
+ * its upload finishes, so after a crash at most the uploads in flight are
+ * lost. The next run skips every file that was uploaded and hasn't changed
+ * since, and retries the ones that failed. A line left half written by a
+ * crash is ignored, so its file is uploaded again.
+ */
+public class BulkUploader {
+    /**
+     * The defaults of the uploader.
+     */
+    public static final Integer DEFAULT_CONCURRENCY = 8;
+
+    /**
+     * Bulk upload error codes.
+     */
+    public static final String DIRECTORY_ERROR = "directory_error";
+    public static final String MANIFEST_ERROR  = "manifest_error";
+
+    /**
+     * The statuses of an upload in the manifest.
+     */
+    public static final String UPLOADED = "uploaded";
+    public static final String FAILED   = "failed";
+
+    /**
+     * A line of the manifest.
+     */
+    private static final class Entry {
+        /**
+         * The absolute path of the file.
+         */
+        private String path;
+
+        /**
+         * The size of the file in bytes.
+         */
+        private long size;
+
+        /**
+         * When the file was last modified, in milliseconds since the epoch.
+         */
+        private long mtime;
+
+        /**
+         * The ID of the new document, if the upload succeeded.
+         */
+        private String id;
+
+        /**
+         * Whether the upload succeeded.
+         */
+        private String status;
+
+        /**
+         * Why the upload failed, if it did.
+         */
+        private String error;
+    }
+
+    /**
+     * How a run went.
+     */
+    public static final class Report {
+        /**
+         * The number of files uploaded.
+         */
+        private final long uploaded;
+
+        /**
+         * The number of files that failed to upload.
+         */
+        private final long failed;
+
+        /**
+         * The number of files skipped, because an earlier run uploaded them.
+         */
+        private final long skipped;
+
+        /**
+         * The number of bytes uploaded.
+         */
+        private final long bytes;
+
+        /**
+         * The number of nanoseconds the run took.
+         */
+        private final long elapsed;
+
+        /**
+         * Create a report.
+         *
+         * @param uploaded The number of files uploaded.
+         * @param failed The number of files that failed to upload.
+         * @param skipped The number of files skipped.
+         * @param bytes The number of bytes uploaded.
+         * @param elapsed The number of nanoseconds the run took.
+         */
+        Report(long uploaded,
+               long failed,
+               long skipped,
+               long bytes,
+               long elapsed) {
+            this.uploaded = uploaded;
+            this.failed   = failed;
+            this.skipped  = skipped;
+            this.bytes    = bytes;
+            this.elapsed  = elapsed;
+        }
+
+        /**
+         * Get the number of files uploaded.
+         *
+         * @return The number of files.
+         */
+        public long getUploadedCount() {
+            return uploaded;
+        }
+
+        /**
+         * Get the number of files that failed to upload. They're retried by
+         * the next run.
+         *
+         * @return The number of files.
+         */
+        public long getFailedCount() {
+            return failed;
+        }
+
+        /**
+         * Get the number of files skipped, because an earlier run uploaded
+         * them.
+         *
+         * @return The number of files.
+         */
+        public long getSkippedCount() {
+            return skipped;
+        }
+
+        /**
+         * Get the number of bytes uploaded.
+         *
+         * @return The number of bytes.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Get how long the run took.
+         *
+         * @param unit The unit of the result.
+         *
+         * @return The time.
+         */
+        public long getElapsedTime(TimeUnit unit) {
+            return unit.convert(elapsed, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Get the number of files uploaded per second.
+         *
+         * @return The throughput in files per second.
+         */
+        public double getFilesPerSecond() {
+            return perSecond(uploaded);
+        }
+
+        /**
+         * Get the number of megabytes uploaded per second.
+         *
+         * @return The throughput in MB/s.
+         */
+        public double getMegabytesPerSecond() {
+            return perSecond(bytes) / (1024 * 1024);
+        }
+
+        /**
+         * Get the rate of an amount over the run.
+         *
+         * @param amount The amount.
+         *
+         * @return The amount per second.
+         */
+        private double perSecond(long amount) {
+            return (elapsed > 0)
+                   ? amount * (double) TimeUnit.SECONDS.toNanos(1) / elapsed
+                   : 0;
+        }
+    }
+
+    /**
+     * A single run over a directory tree, which starts an upload for each
+     * file as the walk finds it.
+     */
+    private final class Run extends SimpleFileVisitor<Path> {
+        /**
+         * The directory being uploaded.
+         */
+        private final Path root;
+
+        /**
+         * The manifest file, so it isn't uploaded itself.
+         */
+        private final Path self;
+
+        /**
+         * The files uploaded by earlier runs, by path.
+         */
+        private final Map<String, Entry> uploaded;
+
+        /**
+         * The manifest.
+         */
+        private final JsonLinesFile manifest;
+
+        /**
+         * The options of each file upload.
+         */
+        private final Map<String, Object> params;
+
+        /**
+         * Bounds the number of uploads in flight.
+         */
+        private final Semaphore permits = new Semaphore(concurrency);
+
+        /**
+         * The number of files uploaded.
+         */
+        private final AtomicLong uploadedCount = new AtomicLong();
+
+        /**
+         * The number of files that failed to upload.
+         */
+        private final AtomicLong failedCount = new AtomicLong();
+
+        /**
+         * The number of bytes uploaded.
+         */
+        private final AtomicLong bytes = new AtomicLong();
+
+        /**
+         * The first error writing to the manifest, or null.
+         */
+        private final AtomicReference<IOException> writeError =
+                                        new AtomicReference<IOException>();
+
+        /**
+         * The number of files skipped, because an earlier run uploaded them.
+         */
+        private long skipped = 0;
+
+        /**
+         * Whether the walk was interrupted.
+         */
+        private boolean interrupted = false;
+
+        /**
+         * Set up the run.
+         *
+         * @param root The directory to upload.
+         * @param uploaded The files uploaded by earlier runs, by path.
+         * @param manifest The manifest.
+         * @param params The options of each file upload.
+         */
+        Run(Path root,
+            Map<String, Entry> uploaded,
+            JsonLinesFile manifest,
+            Map<String, Object> params) {
+            this.root     = root;
+            this.self     = manifestFile.toAbsolutePath().normalize();
+            this.uploaded = uploaded;
+            this.manifest = manifest;
+            this.params   = params;
+        }
+
+        /**
+         * Upload a file the walk found, unless an earlier run uploaded it.
+         *
+         * @param path The file.
+         * @param attrs The attributes of the file.
+         *
+         * @return Whether to go on walking.
+         */
+        public FileVisitResult visitFile(Path path,
+                                         BasicFileAttributes attrs) {
+            Path absolute = path.toAbsolutePath().normalize();
+
+            // symbolic links to files are followed, as by Files.isRegularFile
+            if (absolute.equals(self) || !Files.isRegularFile(path)) {
+                return FileVisitResult.CONTINUE;
+            }
+
+            Entry entry = new Entry();
+            entry.path  = absolute.toString();
+
+            // a file can vanish or become unreadable after the walk found
+            // it, which only fails that file
+            try {
+                entry.size  = Files.size(path);
+                entry.mtime = Files.getLastModifiedTime(path).toMillis();
+            } catch (IOException e) {
+                return fail(entry, e);
+            }
+
+            Entry previous = uploaded.get(entry.path);
+
+            if (previous != null
+                    && previous.size == entry.size
+                    && previous.mtime == entry.mtime) {
+                skipped++;
+                return FileVisitResult.CONTINUE;
+            }
+
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                return interrupt();
+            }
+
+            // an upload finished while waiting for the permit may have
+            // failed to be recorded
+            if (writeError.get() != null) {
+                permits.release();
+                return FileVisitResult.TERMINATE;
+            }
+
+            try {
+                if (rateLimiter != null) {
+                    rateLimiter.acquire();
+                }
+            } catch (InterruptedException e) {
+                permits.release();
+                return interrupt();
+            }
+
+            File file = new File(entry.path);
+
+            Document.uploadAsync(client, file, params)
+                    .whenComplete((document, e) -> {
+                        if (e == null) {
+                            entry.id     = document.getId();
+                            entry.status = UPLOADED;
+                            uploadedCount.incrementAndGet();
+                            bytes.addAndGet(entry.size);
+                        } else {
+                            entry.status = FAILED;
+                            entry.error  = getMessage(e);
+                            failedCount.incrementAndGet();
+                        }
+
+                        record(entry);
+                        permits.release();
+                    });
+
+            return FileVisitResult.CONTINUE;
+        }
+
+        /**
+         * Record a file or directory the walk couldn't read as failed. The
+         * directory being uploaded failing still fails the run.
+         *
+         * @param path The file or directory.
+         * @param e Why it couldn't be read.
+         *
+         * @return Whether to go on walking.
+         * @throws IOException
+         */
+        public FileVisitResult visitFileFailed(Path path, IOException e)
+                               throws IOException {
+            if (path.equals(root)) {
+                throw e;
+            }
+
+            Entry entry = new Entry();
+            entry.path  = path.toAbsolutePath().normalize().toString();
+
+            return fail(entry, e);
+        }
+
+        /**
+         * Record a file that couldn't be read as failed.
+         *
+         * @param entry The manifest line of the file.
+         * @param e Why it couldn't be read.
+         *
+         * @return Whether to go on walking.
+         */
+        private FileVisitResult fail(Entry entry, IOException e) {
+            entry.status = FAILED;
+            entry.error  = e.toString();
+            failedCount.incrementAndGet();
+
+            return record(entry)
+                   ? FileVisitResult.CONTINUE
+                   : FileVisitResult.TERMINATE;
+        }
+
+        /**
+         * Stop the walk, because the thread was interrupted.
+         *
+         * @return Stop walking.
+         */
+        private FileVisitResult interrupt() {
+            Thread.currentThread().interrupt();
+            interrupted = true;
+
+            return FileVisitResult.TERMINATE;
+        }
+
+        /**
+         * Append a line to the manifest, and flush it. If it can't be
+         * written, the error is kept so that the run stops and fails.
+         *
+         * @param entry The manifest line.
+         *
+         * @return Whether the line was written.
+         */
+        private boolean record(Entry entry) {
+            try {
+                manifest.append(entry);
+                return true;
+            } catch (IOException e) {
+                writeError.compareAndSet(null, e);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * The client instance to make requests from.
+     */
+    private final BoxViewClient client;
+
+    /**
+     * The manifest file.
+     */
+    private final Path manifestFile;
+
+    /**
+     * The maximum number of uploads in flight at once.
+     */
+    private final int concurrency;
+
+    /**
+     * Limits how often uploads are started, or null.
+     */
+    private final RateLimiter rateLimiter;
+
+    /**
+     * Set up the uploader with the defaults, and no rate limit of its own.
+     *
+     * @param client The client instance to make requests from.
+     * @param manifestFile The manifest file. If it doesn't exist yet, every
+     *                     file is uploaded.
+     */
+    public BulkUploader(BoxViewClient client, File manifestFile) {
+        this(client, manifestFile, DEFAULT_CONCURRENCY, null);
+    }
+
+    /**
+     * Set up the uploader.
+     *
+     * @param client The client instance to make requests from.
+     * @param manifestFile The manifest file. If it doesn't exist yet, every
+     *                     file is uploaded.
+     * @param concurrency The maximum number of uploads in flight at once.
+     * @param rateLimiter Limits how often uploads are started, or null.
+     */
+    public BulkUploader(BoxViewClient client,
+                        File manifestFile,
+                        int concurrency,
+                        RateLimiter rateLimiter) {
+        if (concurrency < 1) {
+            String message = "concurrency must be at least 1.";
+            throw new IllegalArgumentException(message);
+        }
+
+        this.client       = client;
+        this.manifestFile = manifestFile.toPath();
+        this.concurrency  = concurrency;
+        this.rateLimiter  = rateLimiter;
+    }
+
+    /**
+     * Upload every file in a directory tree that hasn't been uploaded by an
+     * earlier run, and wait for the uploads to finish. A file or directory
+     * that can't be read is recorded as failed, and the walk goes on. If a
+     * line can't be written to the manifest, no more uploads are started and
+     * the run fails once the uploads in flight finish, since an upload that
+     * isn't recorded would be repeated by the next run.
+     *
+     * @param directory The directory to upload.
+     * @param params A key-value pair of options relating to each file upload,
+     *               or null. See Document.upload().
+     *
+     * @return How the run went.
+     * @throws BoxViewException
+     */
+    public synchronized Report upload(File directory,
+                                      Map<String, Object> params)
+                        throws BoxViewException {
+        Map<String, Entry> uploaded = readManifest();
+        long start                  = System.nanoTime();
+        Run run;
+
+        Map<String, Object> uploadParams = (params != null)
+                                           ? params
+                                           : new HashMap<String, Object>();
+
+        try (JsonLinesFile manifest = new JsonLinesFile(manifestFile)) {
+            run = new Run(directory.toPath(), uploaded, manifest, uploadParams);
+
+            try {
+                Files.walkFileTree(run.root, run);
+            } finally {
+                // the uploads in flight are recorded before the manifest is
+                // closed, even if the walk failed
+                run.permits.acquireUninterruptibly(concurrency);
+            }
+        } catch (IOException e) {
+            throw new BoxViewException(e.getMessage(), DIRECTORY_ERROR);
+        }
+
+        if (run.interrupted) {
+            String message = "The bulk upload was interrupted.";
+            throw new BoxViewException(message,
+                                       Request.REQUEST_INTERRUPTED_ERROR);
+        }
+
+        IOException writeError = run.writeError.get();
+
+        if (writeError != null) {
+            throw new BoxViewException(writeError.getMessage(),
+                                       MANIFEST_ERROR);
+        }
+
+        return new Report(run.uploadedCount.get(),
+                          run.failedCount.get(),
+                          run.skipped,
+                          run.bytes.get(),
+                          System.nanoTime() - start);
+    }
+
+    /**
+     * Read the manifest, keeping the latest successful upload of each file.
+     *
+     * @return The uploaded files by path.
+     * @throws BoxViewException
+     */
+    private Map<String, Entry> readManifest() throws BoxViewException {
+        Map<String, Entry> uploaded = new HashMap<String, Entry>();
+
+        try {
+            new JsonLinesFile(manifestFile).read(Entry.class, entry -> {
+                if (entry.path == null) {
+                    return;
+                }
+
+                if (UPLOADED.equals(entry.status)) {
+                    uploaded.put(entry.path, entry);
+                } else {
+                    uploaded.remove(entry.path);
+                }
+            });
+        } catch (IOException e) {
+            throw new BoxViewException(e.getMessage(), MANIFEST_ERROR);
+        }
+
+        return uploaded;
+    }
+
+    /**
+     * Get the message of the exception an upload failed with.
+     *
+     * @param e The exception.
+     *
+     * @return The message.
+     */
+    private static String getMessage(Throwable e) {
+        if (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+
+        return e.getMessage();
+    }
+}
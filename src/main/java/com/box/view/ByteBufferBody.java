@@ -0,0 +1,97 @@
+package com.box.view;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.MIME;
+import org.apache.http.entity.mime.content.AbstractContentBody;
+
+/**
+ * The file part of a multipart upload, sent from memory. The bytes between
+ * the buffer's position and limit are sent, without changing its position,
+ * so an upload with it can be retried.
+ */
+class ByteBufferBody extends AbstractContentBody {
+    /**
+     * The size of the chunks a direct buffer is copied in.
+     */
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    /**
+     * The contents of the file.
+     */
+    private final ByteBuffer content;
+
+    /**
+     * The name of the file.
+     */
+    private final String filename;
+
+    /**
+     * Create the file part.
+     *
+     * @param content The contents of the file.
+     * @param filename The name of the file.
+     */
+    ByteBufferBody(ByteBuffer content, String filename) {
+        super(ContentType.DEFAULT_BINARY);
+        this.content  = content.duplicate();
+        this.filename = filename;
+    }
+
+    /**
+     * Get the name of the file.
+     *
+     * @return The file name.
+     */
+    public String getFilename() {
+        return filename;
+    }
+
+    /**
+     * Get the transfer encoding of the part.
+     *
+     * @return Always binary.
+     */
+    public String getTransferEncoding() {
+        return MIME.ENC_BINARY;
+    }
+
+    /**
+     * Get the number of bytes in the part.
+     *
+     * @return The number of bytes.
+     */
+    public long getContentLength() {
+        return content.remaining();
+    }
+
+    /**
+     * Write the contents to the request body.
+     *
+     * @param out The request body.
+     *
+     * @return void
+     * @throws IOException
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        if (content.hasArray()) {
+            out.write(content.array(),
+                      content.arrayOffset() + content.position(),
+                      content.remaining());
+            return;
+        }
+
+        ByteBuffer source = content.duplicate();
+        byte[] chunk      = new byte[Math.min(CHUNK_SIZE,
+                                              source.remaining())];
+
+        while (source.hasRemaining()) {
+            int count = Math.min(chunk.length, source.remaining());
+            source.get(chunk, 0, count);
+            out.write(chunk, 0, count);
+        }
+    }
+}
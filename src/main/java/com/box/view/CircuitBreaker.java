@@ -0,0 +1,324 @@
+package com.box.view;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops sending requests to a host that is failing, so that callers fail fast
+ * instead of waiting on timeouts, and threads and connections go to healthy
+ * hosts instead.
+ *
+ * The breaker starts closed, and records whether each of the most recent
+ * calls failed (a connection failure or a 5xx) and whether it was slow. When
+ * too many of them failed or were slow, the breaker opens and rejects every
+ * call. After a while it becomes half-open and lets a few trial calls
+ * through: if they all succeed it closes again, and if any of them fails or
+ * is slow it opens again.
+ */
+public class CircuitBreaker {
+    /**
+     * The states of the breaker.
+     */
+    public static final String CLOSED    = "closed";
+    public static final String HALF_OPEN = "half_open";
+    public static final String OPEN      = "open";
+
+    /**
+     * The defaults of the breaker.
+     */
+    public static final double  DEFAULT_FAILURE_RATE_THRESHOLD   = 0.5;
+    public static final double  DEFAULT_SLOW_CALL_RATE_THRESHOLD = 0.8;
+    public static final Integer DEFAULT_SLOW_CALL_DURATION       = 10 * 1000;
+    public static final Integer DEFAULT_WINDOW_SIZE              = 50;
+    public static final Integer DEFAULT_MINIMUM_CALLS            = 10;
+    public static final Integer DEFAULT_OPEN_DURATION            = 30 * 1000;
+    public static final Integer DEFAULT_HALF_OPEN_CALLS          = 3;
+
+    /**
+     * The fraction of recent calls that can fail before the breaker opens.
+     */
+    private final double failureRateThreshold;
+
+    /**
+     * The fraction of recent calls that can be slow before the breaker opens.
+     */
+    private final double slowCallRateThreshold;
+
+    /**
+     * How long a call can take before it's slow, in nanoseconds.
+     */
+    private final long slowCallDuration;
+
+    /**
+     * The number of recent calls needed before the breaker can open.
+     */
+    private final int minimumCalls;
+
+    /**
+     * How long the breaker stays open before trying again, in nanoseconds.
+     */
+    private final long openDuration;
+
+    /**
+     * The number of trial calls that must succeed for the breaker to close.
+     */
+    private final int halfOpenCalls;
+
+    /**
+     * Did each of the recent calls fail, as a ring buffer?
+     */
+    private final boolean[] failed;
+
+    /**
+     * Was each of the recent calls slow, as a ring buffer?
+     */
+    private final boolean[] slow;
+
+    /**
+     * The number of recent calls recorded, up to the size of the window.
+     */
+    private int calls;
+
+    /**
+     * The position in the ring buffers the next call is recorded at.
+     */
+    private int next;
+
+    /**
+     * The number of recent calls that failed.
+     */
+    private int failures;
+
+    /**
+     * The number of recent calls that were slow.
+     */
+    private int slowCalls;
+
+    /**
+     * The current state.
+     */
+    private String state = CLOSED;
+
+    /**
+     * When the breaker can become half-open, from System.nanoTime().
+     */
+    private long openUntil;
+
+    /**
+     * The number of trial calls that can still be started while half-open.
+     */
+    private int trialsLeft;
+
+    /**
+     * The number of trial calls that have succeeded while half-open.
+     */
+    private int trialsSucceeded;
+
+    /**
+     * Instantiate the breaker with the defaults.
+     */
+    public CircuitBreaker() {
+        this(DEFAULT_FAILURE_RATE_THRESHOLD,
+             DEFAULT_SLOW_CALL_RATE_THRESHOLD,
+             DEFAULT_SLOW_CALL_DURATION,
+             DEFAULT_WINDOW_SIZE,
+             DEFAULT_MINIMUM_CALLS,
+             DEFAULT_OPEN_DURATION,
+             DEFAULT_HALF_OPEN_CALLS);
+    }
+
+    /**
+     * Instantiate the breaker.
+     *
+     * @param failureRateThreshold The fraction of recent calls, from 0 to 1,
+     *                             that can fail before the breaker opens.
+     * @param slowCallRateThreshold The fraction of recent calls, from 0 to 1,
+     *                              that can be slow before the breaker opens.
+     * @param slowCallDuration How many milliseconds a call can take before
+     *                         it's slow.
+     * @param windowSize The number of recent calls to look at.
+     * @param minimumCalls The number of recent calls needed before the
+     *                     breaker can open.
+     * @param openDuration How many milliseconds the breaker stays open before
+     *                     trying again.
+     * @param halfOpenCalls The number of trial calls that must succeed for the
+     *                      breaker to close.
+     */
+    public CircuitBreaker(double failureRateThreshold,
+                          double slowCallRateThreshold,
+                          long slowCallDuration,
+                          int windowSize,
+                          int minimumCalls,
+                          long openDuration,
+                          int halfOpenCalls) {
+        if (windowSize < 1 || minimumCalls > windowSize || halfOpenCalls < 1) {
+            String message = "windowSize and halfOpenCalls must be at least 1, "
+                             + "and minimumCalls can't be more than "
+                             + "windowSize.";
+            throw new IllegalArgumentException(message);
+        }
+
+        this.failureRateThreshold  = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDuration      = TimeUnit.MILLISECONDS.toNanos(
+                                                            slowCallDuration);
+        this.minimumCalls          = minimumCalls;
+        this.openDuration          = TimeUnit.MILLISECONDS.toNanos(
+                                                            openDuration);
+        this.halfOpenCalls         = halfOpenCalls;
+        this.failed                = new boolean[windowSize];
+        this.slow                  = new boolean[windowSize];
+    }
+
+    /**
+     * Get the current state.
+     *
+     * @return The state, which can be CLOSED, OPEN, or HALF_OPEN.
+     */
+    public synchronized String getState() {
+        if (state.equals(OPEN) && System.nanoTime() - openUntil >= 0) {
+            return HALF_OPEN;
+        }
+
+        return state;
+    }
+
+    /**
+     * Is the breaker letting calls through? This doesn't start a call, so a
+     * later tryAcquire() can still be rejected.
+     *
+     * @return Are calls let through?
+     */
+    public boolean isCallPermitted() {
+        return !getState().equals(OPEN);
+    }
+
+    /**
+     * Start a call, if the breaker lets it through. Every call that is
+     * started must be finished with exactly one of onSuccess(), onFailure(),
+     * or onIgnored().
+     *
+     * @return Was the call started?
+     */
+    public synchronized boolean tryAcquire() {
+        if (state.equals(OPEN)) {
+            if (System.nanoTime() - openUntil < 0) {
+                return false;
+            }
+
+            state           = HALF_OPEN;
+            trialsLeft      = halfOpenCalls;
+            trialsSucceeded = 0;
+        }
+
+        if (state.equals(HALF_OPEN)) {
+            if (trialsLeft == 0) {
+                return false;
+            }
+
+            trialsLeft--;
+        }
+
+        return true;
+    }
+
+    /**
+     * Finish a call that succeeded.
+     *
+     * @param duration The number of nanoseconds the call took.
+     *
+     * @return void
+     */
+    public synchronized void onSuccess(long duration) {
+        record(false, duration >= slowCallDuration);
+    }
+
+    /**
+     * Finish a call that failed.
+     *
+     * @param duration The number of nanoseconds the call took.
+     *
+     * @return void
+     */
+    public synchronized void onFailure(long duration) {
+        record(true, duration >= slowCallDuration);
+    }
+
+    /**
+     * Finish a call without recording it, such as when it was cancelled.
+     *
+     * @return void
+     */
+    public synchronized void onIgnored() {
+        if (state.equals(HALF_OPEN)) {
+            trialsLeft++;
+        }
+    }
+
+    /**
+     * Record the result of a call, and open or close the breaker if needed.
+     *
+     * @param isFailure Did the call fail?
+     * @param isSlow Was the call slow?
+     *
+     * @return void
+     */
+    private void record(boolean isFailure, boolean isSlow) {
+        if (state.equals(HALF_OPEN)) {
+            if (isFailure || isSlow) {
+                open();
+            } else if (++trialsSucceeded >= halfOpenCalls) {
+                close();
+            }
+
+            return;
+        }
+
+        if (state.equals(OPEN)) {
+            // a call that started before the breaker opened
+            return;
+        }
+
+        if (calls == failed.length) {
+            if (failed[next]) failures--;
+            if (slow[next])   slowCalls--;
+        } else {
+            calls++;
+        }
+
+        failed[next] = isFailure;
+        slow[next]   = isSlow;
+        next         = (next + 1) % failed.length;
+
+        if (isFailure) failures++;
+        if (isSlow)    slowCalls++;
+
+        if (calls >= minimumCalls
+                && (failures >= failureRateThreshold * calls
+                    || slowCalls >= slowCallRateThreshold * calls)) {
+            open();
+        }
+    }
+
+    /**
+     * Open the breaker.
+     *
+     * @return void
+     */
+    private void open() {
+        state     = OPEN;
+        openUntil = System.nanoTime() + openDuration;
+    }
+
+    /**
+     * Close the breaker, and forget the calls recorded before it opened.
+     *
+     * @return void
+     */
+    private void close() {
+        state     = CLOSED;
+        calls     = 0;
+        next      = 0;
+        failures  = 0;
+        slowCalls = 0;
+    }
+}
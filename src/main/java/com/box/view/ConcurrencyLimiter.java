@@ -0,0 +1,306 @@
+package com.box.view;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Limits how many requests are in flight at once, and learns the limit from
+ * the server's responses. The limit grows by about one for every limit's
+ * worth of successful requests while latency stays flat, and is cut
+ * multiplicatively whenever the server pushes back with a 429 or a 5xx, or
+ * the connection fails (additive increase, multiplicative decrease). A
+ * Retry-After header on a successful response only means the content isn't
+ * ready yet, so it doesn't count as pushback.
+ *
+ * Every permit that is acquired must be released with exactly one of
+ * onSuccess(), onDropped(), or onIgnored().
+ */
+public class ConcurrencyLimiter {
+    /**
+     * The default limits.
+     */
+    public static final Integer DEFAULT_INITIAL_LIMIT = 20;
+    public static final Integer DEFAULT_MIN_LIMIT     = 1;
+    public static final Integer DEFAULT_MAX_LIMIT     = 200;
+
+    /**
+     * How much the limit is multiplied by when the server pushes back.
+     */
+    public static final double BACKOFF_RATIO = 0.75;
+
+    /**
+     * How many times slower than the fastest recent request a request can be
+     * and still count as flat latency.
+     */
+    public static final double LATENCY_TOLERANCE = 2.0;
+
+    /**
+     * The number of requests after which the fastest recent latency is
+     * measured again, so the baseline follows changes on the server.
+     */
+    public static final Integer LATENCY_WINDOW = 100;
+
+    /**
+     * The smallest the limit can be.
+     */
+    private final int minLimit;
+
+    /**
+     * The largest the limit can be.
+     */
+    private final int maxLimit;
+
+    /**
+     * The current limit.
+     */
+    private double limit;
+
+    /**
+     * The number of permits that are acquired and not yet released.
+     */
+    private int inFlight;
+
+    /**
+     * The fastest latency in the previous window, in nanoseconds.
+     */
+    private long baselineLatency;
+
+    /**
+     * The fastest latency in the current window, in nanoseconds.
+     */
+    private long windowLatency = Long.MAX_VALUE;
+
+    /**
+     * The number of requests in the current window.
+     */
+    private int windowSamples;
+
+    /**
+     * Acquirers waiting for a permit, in order.
+     */
+    private final Deque<CompletableFuture<Void>> waiters =
+                                    new ArrayDeque<CompletableFuture<Void>>();
+
+    /**
+     * Instantiate the limiter with the default limits.
+     */
+    public ConcurrencyLimiter() {
+        this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT);
+    }
+
+    /**
+     * Instantiate the limiter.
+     *
+     * @param initialLimit The limit to start at.
+     * @param minLimit The smallest the limit can be.
+     * @param maxLimit The largest the limit can be.
+     */
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            String message = "minLimit must be at least 1, and maxLimit must "
+                             + "be at least minLimit.";
+            throw new IllegalArgumentException(message);
+        }
+
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit    = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Get the current limit.
+     *
+     * @return The maximum number of requests allowed in flight right now.
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Get the number of requests in flight.
+     *
+     * @return The number of permits acquired and not yet released.
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Acquire a permit without blocking the calling thread.
+     *
+     * @return A future completed once the permit is acquired.
+     */
+    public CompletableFuture<Void> acquireAsync() {
+        CompletableFuture<Void> waiter = new CompletableFuture<Void>();
+
+        synchronized (this) {
+            if (waiters.isEmpty() && inFlight < (int) limit) {
+                inFlight++;
+                waiter.complete(null);
+            } else {
+                waiters.add(waiter);
+            }
+        }
+
+        return waiter;
+    }
+
+    /**
+     * Acquire a permit, waiting up to a timeout for one to be free.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit The unit of the timeout.
+     *
+     * @return Was a permit acquired?
+     * @throws InterruptedException
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit)
+                   throws InterruptedException {
+        CompletableFuture<Void> waiter = acquireAsync();
+
+        try {
+            waiter.get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return abandon(waiter);
+        } catch (InterruptedException e) {
+            if (abandon(waiter)) {
+                onIgnored();
+            }
+
+            throw e;
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Release a permit after a successful request.
+     *
+     * @param latency The number of nanoseconds the request took.
+     *
+     * @return void
+     */
+    public void onSuccess(long latency) {
+        List<CompletableFuture<Void>> granted;
+
+        synchronized (this) {
+            // only grow the limit when it's actually being used
+            boolean limited = (inFlight * 2 >= (int) limit);
+            inFlight--;
+
+            if (isLatencyFlat(latency) && limited) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+
+            granted = grant();
+        }
+
+        complete(granted);
+    }
+
+    /**
+     * Release a permit after the server pushed back, and cut the limit.
+     *
+     * @return void
+     */
+    public void onDropped() {
+        List<CompletableFuture<Void>> granted;
+
+        synchronized (this) {
+            inFlight--;
+            limit   = Math.max(minLimit, limit * BACKOFF_RATIO);
+            granted = grant();
+        }
+
+        complete(granted);
+    }
+
+    /**
+     * Release a permit without learning anything from the request, such as
+     * when it was never sent.
+     *
+     * @return void
+     */
+    public void onIgnored() {
+        List<CompletableFuture<Void>> granted;
+
+        synchronized (this) {
+            inFlight--;
+            granted = grant();
+        }
+
+        complete(granted);
+    }
+
+    /**
+     * Stop waiting for a permit.
+     *
+     * @param waiter The future of the acquirer.
+     *
+     * @return Was the permit acquired before the acquirer stopped waiting?
+     */
+    private synchronized boolean abandon(CompletableFuture<Void> waiter) {
+        return !waiters.remove(waiter);
+    }
+
+    /**
+     * Record a latency sample, and check whether it's close to the fastest
+     * recent latency.
+     *
+     * @param latency The number of nanoseconds a request took.
+     *
+     * @return Is the latency flat?
+     */
+    private boolean isLatencyFlat(long latency) {
+        windowLatency = Math.min(windowLatency, latency);
+
+        if (++windowSamples >= LATENCY_WINDOW) {
+            baselineLatency = windowLatency;
+            windowLatency   = Long.MAX_VALUE;
+            windowSamples   = 0;
+        }
+
+        long baseline = (baselineLatency > 0)
+                        ? Math.min(baselineLatency, windowLatency)
+                        : windowLatency;
+        return latency <= baseline * LATENCY_TOLERANCE;
+    }
+
+    /**
+     * Hand out free permits to waiting acquirers. Must be called while holding
+     * the lock; the returned futures are completed after releasing it.
+     *
+     * @return The futures of the acquirers that got a permit.
+     */
+    private List<CompletableFuture<Void>> grant() {
+        List<CompletableFuture<Void>> granted =
+                                    new ArrayList<CompletableFuture<Void>>();
+
+        while (!waiters.isEmpty() && inFlight < (int) limit) {
+            inFlight++;
+            granted.add(waiters.poll());
+        }
+
+        return granted;
+    }
+
+    /**
+     * Complete the futures of acquirers that got a permit.
+     *
+     * @param granted The futures of the acquirers.
+     *
+     * @return void
+     */
+    private static void complete(List<CompletableFuture<Void>> granted) {
+        for (CompletableFuture<Void> waiter : granted) {
+            waiter.complete(null);
+        }
+    }
+}
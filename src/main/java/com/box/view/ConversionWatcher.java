@@ -0,0 +1,558 @@
+package com.box.view;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Waits for documents to finish converting, by polling their status from a
+ * single scheduler instead of a sleep loop per document. Each document is
+ * polled often at first, and less and less often the longer it takes, up to
+ * a maximum interval. All polls share a budget of requests per second and a
+ * maximum number of requests in flight, so watching thousands of documents
+ * doesn't flood the API.
+ *
+ * Watching a document returns a future that completes with the document once
+ * its status is done or error, or fails with the exception of the poll that
+ * failed. Cancelling the future stops watching the document.
+ */
+public class ConversionWatcher implements Closeable {
+    /**
+     * The defaults of the watcher.
+     */
+    public static final Integer DEFAULT_INITIAL_INTERVAL    = 1000;
+    public static final Integer DEFAULT_MAX_INTERVAL        = 30 * 1000;
+    public static final Integer DEFAULT_MAX_IN_FLIGHT       = 10;
+    public static final Integer DEFAULT_REQUESTS_PER_SECOND = 20;
+
+    /**
+     * How much longer each poll of a document waits than the previous one.
+     */
+    public static final double BACKOFF_MULTIPLIER = 1.5;
+
+    /**
+     * Watcher error codes.
+     */
+    public static final String WATCHER_CLOSED_ERROR = "watcher_closed";
+
+    /**
+     * How long a wake for a document that isn't watched yet is remembered,
+     * in case it's watched soon after, such as when a notification arrives
+     * before the upload's response.
+     */
+    private static final long EARLY_WAKE_TTL = TimeUnit.SECONDS.toNanos(30);
+
+    /**
+     * The maximum number of early wakes remembered at once.
+     */
+    private static final int MAX_EARLY_WAKES = 1000;
+
+    /**
+     * A document being watched.
+     */
+    private static final class Watch {
+        /**
+         * The document ID.
+         */
+        private final String id;
+
+        /**
+         * Completed once the document is done converting.
+         */
+        private final CompletableFuture<Document> future =
+                                            new CompletableFuture<Document>();
+
+        /**
+         * The number of nanoseconds to wait before the next poll.
+         */
+        private long interval;
+
+        /**
+         * Makes the document due once its interval has passed, or null if it's
+         * already due or being polled.
+         */
+        private ScheduledFuture<?> timer;
+
+        /**
+         * Was the document woken while it had no timer to cancel, such as
+         * while it was being polled? It's then polled again right away.
+         */
+        private boolean woken;
+
+        /**
+         * Start watching a document.
+         *
+         * @param id The document ID.
+         * @param interval The number of nanoseconds to wait before the first
+         *                 poll.
+         */
+        Watch(String id, long interval) {
+            this.id       = id;
+            this.interval = interval;
+        }
+    }
+
+    /**
+     * The client instance to make requests from.
+     */
+    private final BoxViewClient client;
+
+    /**
+     * The number of nanoseconds to wait before the first poll of a document.
+     */
+    private final long initialInterval;
+
+    /**
+     * The maximum number of nanoseconds to wait between polls of a document.
+     */
+    private final long maxInterval;
+
+    /**
+     * The maximum number of polls in flight at once.
+     */
+    private final int maxInFlight;
+
+    /**
+     * Limits how many polls are sent per second, across all documents.
+     */
+    private final RateLimiter budget;
+
+    /**
+     * Schedules the polls.
+     */
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    /**
+     * The documents being watched by ID.
+     */
+    private final Map<String, Watch> watches = new HashMap<String, Watch>();
+
+    /**
+     * The documents that are due to be polled, in the order they became due.
+     */
+    private final Queue<Watch> due = new ArrayDeque<Watch>();
+
+    /**
+     * When each wake for a document that isn't watched yet expires, from
+     * System.nanoTime(), in the order they were received.
+     */
+    private final LinkedHashMap<String, Long> earlyWakes =
+                                            new LinkedHashMap<String, Long>();
+
+    /**
+     * The number of polls in flight.
+     */
+    private int inFlight;
+
+    /**
+     * Has the watcher been closed?
+     */
+    private boolean closed;
+
+    /**
+     * The number of polls sent.
+     */
+    private final AtomicLong polls = new AtomicLong();
+
+    /**
+     * Instantiate the watcher with the defaults.
+     *
+     * @param client The client instance to make requests from.
+     */
+    public ConversionWatcher(BoxViewClient client) {
+        this(client,
+             DEFAULT_INITIAL_INTERVAL,
+             DEFAULT_MAX_INTERVAL,
+             DEFAULT_MAX_IN_FLIGHT,
+             DEFAULT_REQUESTS_PER_SECOND);
+    }
+
+    /**
+     * Instantiate the watcher.
+     *
+     * @param client The client instance to make requests from.
+     * @param initialInterval How many milliseconds to wait before the first
+     *                        poll of a document.
+     * @param maxInterval The maximum number of milliseconds to wait between
+     *                    polls of a document.
+     * @param maxInFlight The maximum number of polls in flight at once.
+     * @param requestsPerSecond The maximum number of polls sent per second.
+     */
+    public ConversionWatcher(BoxViewClient client,
+                             long initialInterval,
+                             long maxInterval,
+                             int maxInFlight,
+                             double requestsPerSecond) {
+        if (initialInterval < 1
+                || maxInterval < initialInterval
+                || maxInFlight < 1
+                || requestsPerSecond <= 0) {
+            String message = "initialInterval must be at least 1 and at most "
+                             + "maxInterval, maxInFlight must be at least 1, "
+                             + "and requestsPerSecond must be positive.";
+            throw new IllegalArgumentException(message);
+        }
+
+        this.client          = client;
+        this.initialInterval = TimeUnit.MILLISECONDS.toNanos(initialInterval);
+        this.maxInterval     = TimeUnit.MILLISECONDS.toNanos(maxInterval);
+        this.maxInFlight     = maxInFlight;
+        this.budget          = new RateLimiter(requestsPerSecond, maxInFlight);
+        this.scheduler       = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "box-view-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Get the number of documents being watched.
+     *
+     * @return The number of documents.
+     */
+    public synchronized int getWatchedCount() {
+        return watches.size();
+    }
+
+    /**
+     * Get the number of polls sent so far.
+     *
+     * @return The number of polls.
+     */
+    public long getPollCount() {
+        return polls.get();
+    }
+
+    /**
+     * Wait for a document to finish converting. If the document is already
+     * done or has failed, the returned future is already completed.
+     *
+     * @param document The document, such as one that was just uploaded.
+     *
+     * @return A future completed with the document once its status is done or
+     *         error.
+     */
+    public CompletableFuture<Document> watch(Document document) {
+        if (isFinished(document)) {
+            return CompletableFuture.completedFuture(document);
+        }
+
+        return watch(document.getId());
+    }
+
+    /**
+     * Wait for a document to finish converting. Watching a document that is
+     * already being watched returns the same future.
+     *
+     * @param id The document ID.
+     *
+     * @return A future completed with the document once its status is done or
+     *         error.
+     */
+    public CompletableFuture<Document> watch(String id) {
+        Watch watch;
+
+        synchronized (this) {
+            if (closed) {
+                CompletableFuture<Document> future =
+                                            new CompletableFuture<Document>();
+                future.completeExceptionally(closedException());
+                return future;
+            }
+
+            watch = watches.get(id);
+
+            if (watch != null) {
+                return watch.future;
+            }
+
+            watch       = new Watch(id, initialInterval);
+            watch.woken = takeEarlyWake(id);
+            watches.put(id, watch);
+        }
+
+        final Watch added = watch;
+        added.future.whenComplete((document, e) -> forget(added));
+        schedule(added);
+
+        return added.future;
+    }
+
+    /**
+     * Poll a watched document as soon as the request budget allows, instead
+     * of waiting for its interval to pass, such as when a notification says
+     * its status has changed. A document that is being polled is polled again
+     * as soon as that poll is done, since it may have been answered before
+     * the change. A document that isn't watched yet is polled right away if
+     * it's watched within a short time, since a notification can arrive
+     * before the upload's response.
+     *
+     * @param id The document ID.
+     *
+     * @return void
+     */
+    void wake(String id) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+
+            Watch watch = watches.get(id);
+
+            if (watch == null) {
+                addEarlyWake(id);
+                return;
+            }
+
+            if (watch.timer == null || !watch.timer.cancel(false)) {
+                // a document that is already due is polled soon anyway
+                if (!due.contains(watch)) {
+                    watch.woken = true;
+                }
+
+                return;
+            }
+
+            watch.timer = null;
+            due.add(watch);
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Stop watching every document, and fail their futures. Polls in flight
+     * are left to finish, but their results are ignored.
+     *
+     * @return void
+     */
+    public void close() {
+        List<Watch> abandoned;
+
+        synchronized (this) {
+            closed    = true;
+            abandoned = new ArrayList<Watch>(watches.values());
+            due.clear();
+            earlyWakes.clear();
+        }
+
+        scheduler.shutdownNow();
+
+        for (Watch watch : abandoned) {
+            watch.future.completeExceptionally(closedException());
+        }
+    }
+
+    /**
+     * Is a document done converting, either successfully or not?
+     *
+     * @param document The document.
+     *
+     * @return Is its status done or error?
+     */
+    private static boolean isFinished(Document document) {
+        return "done".equals(document.getStatus())
+               || "error".equals(document.getStatus());
+    }
+
+    /**
+     * Create the exception that futures are failed with once the watcher is
+     * closed.
+     *
+     * @return A new exception.
+     */
+    private static BoxViewException closedException() {
+        String message = "The conversion watcher was closed.";
+        return new BoxViewException(message, WATCHER_CLOSED_ERROR);
+    }
+
+    /**
+     * Remember a wake for a document that isn't watched yet.
+     *
+     * @param id The document ID.
+     *
+     * @return void
+     */
+    private void addEarlyWake(String id) {
+        long now = System.nanoTime();
+
+        // kept in the order they expire, so the expired ones are first
+        earlyWakes.remove(id);
+        earlyWakes.put(id, now + EARLY_WAKE_TTL);
+
+        Iterator<Long> expiries = earlyWakes.values().iterator();
+
+        while (expiries.hasNext()) {
+            long expiresAt = expiries.next();
+
+            if (now - expiresAt < 0 && earlyWakes.size() <= MAX_EARLY_WAKES) {
+                break;
+            }
+
+            expiries.remove();
+        }
+    }
+
+    /**
+     * Forget the wake for a document that is now being watched.
+     *
+     * @param id The document ID.
+     *
+     * @return Was the document woken recently?
+     */
+    private boolean takeEarlyWake(String id) {
+        Long expiresAt = earlyWakes.remove(id);
+        return expiresAt != null && System.nanoTime() - expiresAt < 0;
+    }
+
+    /**
+     * Stop watching a document once its future is completed.
+     *
+     * @param watch The document.
+     *
+     * @return void
+     */
+    private synchronized void forget(Watch watch) {
+        if (watches.get(watch.id) == watch) {
+            watches.remove(watch.id);
+        }
+    }
+
+    /**
+     * Make a document due for polling once its interval has passed, or right
+     * away if it was woken.
+     *
+     * @param watch The document.
+     *
+     * @return void
+     */
+    private void schedule(Watch watch) {
+        synchronized (this) {
+            if (!watch.woken) {
+                startTimer(watch);
+                return;
+            }
+
+            watch.woken = false;
+
+            if (closed) {
+                return;
+            }
+
+            due.add(watch);
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Make a document due for polling once its interval has passed.
+     *
+     * @param watch The document.
+     *
+     * @return void
+     */
+    private synchronized void startTimer(Watch watch) {
+        try {
+            watch.timer = scheduler.schedule(() -> {
+                synchronized (this) {
+                    if (closed || watch.timer == null) {
+                        return;
+                    }
+
+                    watch.timer = null;
+                    due.add(watch);
+                }
+
+                dispatch();
+            }, watch.interval, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // the watcher was closed, which fails the future
+        }
+    }
+
+    /**
+     * Send polls for the documents that are due, as far as the maximum number
+     * in flight allows. Each poll is delayed until the request budget has a
+     * request for it.
+     *
+     * @return void
+     */
+    private void dispatch() {
+        List<Watch> ready = new ArrayList<Watch>();
+
+        synchronized (this) {
+            while (inFlight < maxInFlight && !due.isEmpty()) {
+                Watch watch = due.poll();
+
+                if (!watch.future.isDone()) {
+                    ready.add(watch);
+                    inFlight++;
+                }
+            }
+        }
+
+        for (Watch watch : ready) {
+            long wait = budget.reserve(Long.MAX_VALUE);
+
+            try {
+                scheduler.schedule(() -> poll(watch),
+                                   wait,
+                                   TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // the watcher was closed, which fails the future
+            }
+        }
+    }
+
+    /**
+     * Request the status of a document, and either complete its future or
+     * poll it again after a longer interval.
+     *
+     * @param watch The document.
+     *
+     * @return void
+     */
+    private void poll(Watch watch) {
+        polls.incrementAndGet();
+
+        Document.fetchAsync(client, watch.id).whenComplete((document, e) -> {
+            synchronized (this) {
+                inFlight--;
+            }
+
+            if (e != null) {
+                Throwable cause = (e instanceof CompletionException
+                                   && e.getCause() != null)
+                                  ? e.getCause()
+                                  : e;
+                watch.future.completeExceptionally(cause);
+            } else if (isFinished(document)) {
+                watch.future.complete(document);
+            } else if (!watch.future.isDone()) {
+                watch.interval = Math.min(
+                                     (long) (watch.interval
+                                             * BACKOFF_MULTIPLIER),
+                                     maxInterval);
+                schedule(watch);
+            }
+
+            dispatch();
+        });
+    }
+}
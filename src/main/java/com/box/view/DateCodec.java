@@ -0,0 +1,294 @@
+package com.box.view;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Formats and parses the RFC 3339 timestamps used by the API, such as
+ * 2015-04-17T22:21:17.123Z and 2015-04-17T22:21:17Z, in UTC. Unlike
+ * SimpleDateFormat it keeps no state, so it's safe to share between threads,
+ * and it allocates little more than the result.
+ */
+final class DateCodec {
+    /**
+     * The number of milliseconds in a day.
+     */
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    /**
+     * The number of days from 0000-03-01 to 1970-01-01.
+     */
+    private static final long DAYS_TO_EPOCH = 719468;
+
+    /**
+     * The number of days in each month of a common year.
+     */
+    private static final int[] DAYS_IN_MONTH = {
+        31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31
+    };
+
+    /**
+     * Not meant to be instantiated.
+     */
+    private DateCodec() {
+    }
+
+    /**
+     * Format a date as an RFC 3339 timestamp in UTC, with milliseconds.
+     *
+     * @param date A date object.
+     *
+     * @return A timestamp like 2015-04-17T22:21:17.123Z.
+     */
+    static String format(Date date) {
+        long time  = date.getTime();
+        long days  = Math.floorDiv(time, MILLIS_PER_DAY);
+        int millis = (int) Math.floorMod(time, MILLIS_PER_DAY);
+
+        // the civil date from the number of days, with years counted from
+        // March, so the leap day is at their end
+        long shifted     = days + DAYS_TO_EPOCH;
+        long era         = Math.floorDiv(shifted, 146097);
+        int dayOfEra     = (int) (shifted - era * 146097);
+        int yearOfEra    = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524
+                            - dayOfEra / 146096) / 365;
+        int dayOfYear    = dayOfEra - (365 * yearOfEra + yearOfEra / 4
+                                       - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day          = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month        = shiftedMonth < 10 ? shiftedMonth + 3
+                                             : shiftedMonth - 9;
+        long year        = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        if (year < 0 || year > 9999) {
+            return formatSlowly(date);
+        }
+
+        char[] chars = new char[24];
+        putDigits(chars, 0, (int) year, 4);
+        chars[4] = '-';
+        putDigits(chars, 5, month, 2);
+        chars[7] = '-';
+        putDigits(chars, 8, day, 2);
+        chars[10] = 'T';
+        putDigits(chars, 11, millis / 3600000, 2);
+        chars[13] = ':';
+        putDigits(chars, 14, millis / 60000 % 60, 2);
+        chars[16] = ':';
+        putDigits(chars, 17, millis / 1000 % 60, 2);
+        chars[19] = '.';
+        putDigits(chars, 20, millis % 1000, 3);
+        chars[23] = 'Z';
+
+        return new String(chars);
+    }
+
+    /**
+     * Parse an RFC 3339 timestamp, with or without fractional seconds, and
+     * with either a Z or a numeric offset from UTC.
+     *
+     * @param value The timestamp.
+     *
+     * @return The date, or null if the timestamp isn't in a valid format.
+     */
+    static Date parse(String value) {
+        if (value == null || value.length() < 20) {
+            return null;
+        }
+
+        int year   = readDigits(value, 0, 4);
+        int month  = readDigits(value, 5, 2);
+        int day    = readDigits(value, 8, 2);
+        int hour   = readDigits(value, 11, 2);
+        int minute = readDigits(value, 14, 2);
+        int second = readDigits(value, 17, 2);
+
+        if (year < 0 || month < 1 || month > 12 || day < 1
+                || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || second < 0 || second > 60
+                || value.charAt(4) != '-' || value.charAt(7) != '-'
+                || (value.charAt(10) != 'T' && value.charAt(10) != 't')
+                || value.charAt(13) != ':' || value.charAt(16) != ':') {
+            return null;
+        }
+
+        int position = 19;
+        int millis   = 0;
+
+        if (value.charAt(position) == '.') {
+            int start = ++position;
+
+            while (position < value.length()
+                       && isDigit(value.charAt(position))) {
+                // only milliseconds are kept, the rest is truncated
+                if (position - start < 3) {
+                    millis = millis * 10 + (value.charAt(position) - '0');
+                }
+
+                position++;
+            }
+
+            if (position == start) {
+                return null;
+            }
+
+            for (int i = position - start; i < 3; i++) {
+                millis *= 10;
+            }
+        }
+
+        int offset = readOffset(value, position);
+
+        if (offset == Integer.MIN_VALUE) {
+            return null;
+        }
+
+        long days = daysFromCivil(year, month, day);
+        long time = days * MILLIS_PER_DAY
+                    + ((hour * 60L + minute) * 60 + second) * 1000
+                    + millis
+                    - offset * 60000L;
+
+        return new Date(time);
+    }
+
+    /**
+     * Read the offset from UTC at the end of a timestamp.
+     *
+     * @param value The timestamp.
+     * @param position Where the offset starts.
+     *
+     * @return The offset in minutes, or Integer.MIN_VALUE if it isn't valid.
+     */
+    private static int readOffset(String value, int position) {
+        int remaining = value.length() - position;
+
+        if (remaining == 1) {
+            char zone = value.charAt(position);
+            return (zone == 'Z' || zone == 'z') ? 0 : Integer.MIN_VALUE;
+        }
+
+        if (remaining != 6 || value.charAt(position + 3) != ':') {
+            return Integer.MIN_VALUE;
+        }
+
+        char sign   = value.charAt(position);
+        int hours   = readDigits(value, position + 1, 2);
+        int minutes = readDigits(value, position + 4, 2);
+
+        if ((sign != '+' && sign != '-')
+                || hours < 0 || hours > 23 || minutes < 0 || minutes > 59) {
+            return Integer.MIN_VALUE;
+        }
+
+        int offset = hours * 60 + minutes;
+        return (sign == '-') ? -offset : offset;
+    }
+
+    /**
+     * Read a fixed number of decimal digits.
+     *
+     * @param value The string to read from.
+     * @param position Where the digits start.
+     * @param count The number of digits.
+     *
+     * @return The number, or -1 if any of the characters isn't a digit.
+     */
+    private static int readDigits(String value, int position, int count) {
+        int number = 0;
+
+        for (int i = position; i < position + count; i++) {
+            char c = value.charAt(i);
+
+            if (!isDigit(c)) {
+                return -1;
+            }
+
+            number = number * 10 + (c - '0');
+        }
+
+        return number;
+    }
+
+    /**
+     * Is a character an ASCII digit?
+     *
+     * @param c The character.
+     *
+     * @return Is it a digit?
+     */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Write a number as a fixed number of decimal digits, padded with zeros.
+     *
+     * @param chars The characters to write to.
+     * @param position Where the digits start.
+     * @param number The number.
+     * @param count The number of digits.
+     *
+     * @return void
+     */
+    private static void putDigits(char[] chars,
+                                  int position,
+                                  int number,
+                                  int count) {
+        for (int i = position + count - 1; i >= position; i--) {
+            chars[i] = (char) ('0' + number % 10);
+            number  /= 10;
+        }
+    }
+
+    /**
+     * Get the number of days in a month.
+     *
+     * @param year The year.
+     * @param month The month, from 1 to 12.
+     *
+     * @return The number of days.
+     */
+    private static int daysInMonth(int year, int month) {
+        boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+        return (month == 2 && leap) ? 29 : DAYS_IN_MONTH[month - 1];
+    }
+
+    /**
+     * Get the number of days from 1970-01-01 to a date.
+     *
+     * @param year The year.
+     * @param month The month, from 1 to 12.
+     * @param day The day of the month.
+     *
+     * @return The number of days.
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        // the year is counted from March, so the leap day is at its end
+        int y         = (month <= 2) ? year - 1 : year;
+        int era       = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5
+                        + day - 1;
+        int dayOfEra  = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100
+                        + dayOfYear;
+
+        return era * 146097L + dayOfEra - DAYS_TO_EPOCH;
+    }
+
+    /**
+     * Format a date whose year doesn't have four digits.
+     *
+     * @param date A date object.
+     *
+     * @return An RFC 3339 timestamp.
+     */
+    private static String formatSlowly(Date date) {
+        String format              = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
+        SimpleDateFormat isoFormat = new SimpleDateFormat(format);
+        isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return isoFormat.format(date);
+    }
+}
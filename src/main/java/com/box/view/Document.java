@@ -3,14 +3,28 @@ package com.box.view;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.http.HttpEntity;
+import org.apache.http.entity.mime.content.ContentBody;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 /**
  * Provide access to the Box View Document API. The Document API is used for
@@ -41,23 +55,23 @@ public class Document extends Base {
     /**
      * The date the document was created, formatted as RFC 3339.
      */
-    private Date createdAt;
+    private final Date createdAt;
 
     /**
      * The document ID.
      */
-    private String id;
+    private final String id;
 
     /**
-     * The document title.
+     * The document title, which changes when the document is updated.
      */
-    private String name;
+    private volatile String name;
 
     /**
      * The document status, which can be 'queued', 'processing', 'done', or
      * 'error'.
      */
-    private String status;
+    private volatile String status;
 
     /**
      * Instantiate the document.
@@ -73,10 +87,32 @@ public class Document extends Base {
      *                 'queued', 'processing', 'done', or 'error'.
      */
     public Document(BoxViewClient client, Map<String, Object>data) {
-        this.client = client;
-        id          = (String) data.get("id");
+        this(client,
+             (String) data.get("id"),
+             getCreatedAt(data),
+             (String) data.get("name"),
+             (String) data.get("status"));
+    }
 
-        setValues(data);
+    /**
+     * Instantiate the document from values that have already been read.
+     *
+     * @param client The client instance to make requests from.
+     * @param id The document ID.
+     * @param createdAt The date the document was created.
+     * @param name The document title.
+     * @param status The document status.
+     */
+    Document(BoxViewClient client,
+             String id,
+             Date createdAt,
+             String name,
+             String status) {
+        this.client    = client;
+        this.id        = id;
+        this.createdAt = createdAt;
+        this.name      = name;
+        this.status    = status;
     }
 
     /**
@@ -149,6 +185,30 @@ public class Document extends Base {
         return Session.create(client, id, params);
     }
 
+    /**
+     * Create a session for a specific document asynchronously.
+     *
+     * @return A future completed with a new session instance.
+     */
+    public CompletableFuture<Session> createSessionAsync() {
+        return Session.createAsync(client, id);
+    }
+
+    /**
+     * Create a session for a specific document asynchronously.
+     *
+     * @param params A key-value pair of options relating to the new session.
+     *               See createSession() for the available options.
+     *
+     * @return A future completed with a new session instance.
+     * @throws ParseException
+     */
+    public CompletableFuture<Session> createSessionAsync(
+                                                    Map<String, Object> params)
+                                      throws ParseException {
+        return Session.createAsync(client, id, params);
+    }
+
     /**
      * Delete a file.
      *
@@ -165,11 +225,33 @@ public class Document extends Base {
                                                 null,
                                                 null,
                                                 options);
+        invalidate(client, id);
 
         // a successful delete returns nothing, so we return true in that case
         return (response == null);
     }
 
+    /**
+     * Delete a file asynchronously.
+     *
+     * @return A future completed with whether the file was deleted.
+     */
+    public CompletableFuture<Boolean> deleteAsync() {
+        Map<String, Object> options = new HashMap<String, Object>();
+        options.put("httpMethod", "DELETE");
+        options.put("rawResponse", true);
+
+        return requestHttpEntityAsync(client,
+                                      PATH + "/" + id,
+                                      null,
+                                      null,
+                                      options)
+               .thenApply(response -> {
+                   invalidate(client, id);
+                   return response == null;
+               });
+    }
+
     /**
      * Download a file using the original extension.
      *
@@ -185,15 +267,24 @@ public class Document extends Base {
                                                 null,
                                                 null,
                                                 options);
-        InputStream stream = null;
+        return getContent(response);
+    }
 
-        try {
-            stream = response.getContent();
-        } catch (IOException e) {
-            error(INVALID_RESPONSE_ERROR, e.getMessage());
-        }
+    /**
+     * Download a file using the original extension asynchronously.
+     *
+     * @return A future completed with the contents of the downloaded file.
+     */
+    public CompletableFuture<InputStream> downloadAsync() {
+        Map<String, Object> options = new HashMap<String, Object>();
+        options.put("rawResponse", true);
 
-        return stream;
+        return parseAsync(requestHttpEntityAsync(client,
+                                                 PATH + "/" + id + "/content",
+                                                 null,
+                                                 null,
+                                                 options),
+                          Document::getContent);
     }
 
     /**
@@ -217,15 +308,30 @@ public class Document extends Base {
                                                 null,
                                                 null,
                                                 options);
-        InputStream stream  = null;
+        return getContent(response);
+    }
 
-        try {
-            stream = response.getContent();
-        } catch (IOException e) {
-            error(INVALID_RESPONSE_ERROR, e.getMessage());
-        }
+    /**
+     * Download a file using a specific extension asynchronously.
+     *
+     * @param extension The extension to download the file in, which can be pdf
+     *                  or zip. If no extension is provided, the file will be
+     *                  downloaded using the original extension.
+     *
+     * @return A future completed with the contents of the downloaded file.
+     */
+    public CompletableFuture<InputStream> downloadAsync(String extension) {
+        String path = PATH + "/" + id + "/content." + extension;
 
-        return stream;
+        Map<String, Object> options = new HashMap<String, Object>();
+        options.put("rawResponse", true);
+
+        return parseAsync(requestHttpEntityAsync(client,
+                                                 path,
+                                                 null,
+                                                 null,
+                                                 options),
+                          Document::getContent);
     }
 
     /**
@@ -251,15 +357,33 @@ public class Document extends Base {
                                                 getParams,
                                                 null,
                                                 options);
-        InputStream stream = null;
+        return getContent(response);
+    }
 
-        try {
-            stream = response.getContent();
-        } catch (IOException e) {
-            error(INVALID_RESPONSE_ERROR, e.getMessage());
-        }
+    /**
+     * Download a thumbnail of a specific size for a file asynchronously.
+     *
+     * @param width The width of the thumbnail in pixels.
+     * @param height The height of the thumbnail in pixels.
+     *
+     * @return A future completed with the contents of the downloaded
+     *         thumbnail.
+     */
+    public CompletableFuture<InputStream> thumbnailAsync(Integer width,
+                                                         Integer height) {
+        Map<String, Object> getParams = new HashMap<String, Object>();
+        getParams.put("height", height.toString());
+        getParams.put("width", width.toString());
 
-        return stream;
+        Map<String, Object> options = new HashMap<String, Object>();
+        options.put("rawResponse", true);
+
+        return parseAsync(requestHttpEntityAsync(client,
+                                                 PATH + "/" + id + "/thumbnail",
+                                                 getParams,
+                                                 null,
+                                                 options),
+                          Document::getContent);
     }
 
     /**
@@ -271,25 +395,40 @@ public class Document extends Base {
      * @throws BoxViewException
      */
     public Boolean update(Map<String, Object> fields) throws BoxViewException {
-        Map<String, Object> postParams = new HashMap<String, Object>();
+        Map<String, Object> options = new HashMap<String, Object>();
+        options.put("httpMethod", "PUT");
 
-        for (String field : UPDATEABLE_FIELDS) {
-            if (fields.containsKey(field)
-                    && !fields.get(field).toString().isEmpty()) {
-                postParams.put(field, fields.get(field));
-            }
-        }
+        HttpEntity response = requestJsonEntity(client,
+                                                PATH + "/" + id,
+                                                null,
+                                                getUpdateParams(fields),
+                                                options);
+        invalidate(client, id);
+        setValues(read(client, response));
+        return true;
+    }
 
+    /**
+     * Update specific fields for the metadata of a file asynchronously.
+     *
+     * @param fields A key-value pair of the fields to update on the file.
+     *
+     * @return A future completed with whether the file was updated.
+     */
+    public CompletableFuture<Boolean> updateAsync(Map<String, Object> fields) {
         Map<String, Object> options = new HashMap<String, Object>();
         options.put("httpMethod", "PUT");
 
-        Map<String, Object> metadata = requestJson(client,
-                                                   PATH + "/" + id,
-                                                   null,
-                                                   postParams,
-                                                   options);
-        setValues(metadata);
-        return true;
+        return parseAsync(requestJsonEntityAsync(client,
+                                                 PATH + "/" + id,
+                                                 null,
+                                                 getUpdateParams(fields),
+                                                 options),
+                          response -> {
+                              invalidate(client, id);
+                              setValues(read(client, response));
+                              return true;
+                          });
     }
 
     /**
@@ -322,66 +461,191 @@ public class Document extends Base {
      * @return An array containing document instances matching the request.
      * @throws BoxViewException
      */
-    @SuppressWarnings("unchecked")
     public static List<Document> find(BoxViewClient client,
                                       Map<String, Object> params)
                   throws BoxViewException, ParseException {
-        Map<String, Object> getParams = new HashMap<String, Object>();
+        HttpEntity response = requestJsonEntity(client,
+                                                PATH,
+                                                getFindParams(params),
+                                                null,
+                                                null);
+        return readDocumentCollection(client, response);
+    }
 
-        if (params.containsKey("limit")
-                && ((Integer) params.get("limit")) > 0) {
-            getParams.put("limit", params.get("limit"));
-        }
+    /**
+     * Get a list of all documents asynchronously.
+     *
+     * @param client The client instance to make requests from.
+     *
+     * @return A future completed with instances of all documents.
+     */
+    public static CompletableFuture<List<Document>> findAsync(
+                                                        BoxViewClient client) {
+        return parseAsync(requestJsonEntityAsync(client,
+                                                 PATH,
+                                                 new HashMap<String, Object>(),
+                                                 null,
+                                                 null),
+                          response -> readDocumentCollection(client,
+                                                             response));
+    }
 
-        if (params.containsKey("createdBefore")) {
-            Object createdBefore       = params.get("createdBefore");
-            String createdBeforeString = (createdBefore instanceof Date)
-                                         ? date((Date) createdBefore)
-                                         : date(createdBefore.toString());
-            getParams.put("created_before", createdBeforeString);
-        }
+    /**
+     * Get a list of all documents that meet the provided criteria
+     * asynchronously.
+     *
+     * @param client The client instance to make requests from.
+     * @param params A key-value pair to filter the list of all documents
+     *               uploaded. See find() for the available options.
+     *
+     * @return A future completed with document instances matching the
+     *         request.
+     * @throws ParseException
+     */
+    public static CompletableFuture<List<Document>> findAsync(
+                                                    BoxViewClient client,
+                                                    Map<String, Object> params)
+                                                throws ParseException {
+        return parseAsync(requestJsonEntityAsync(client,
+                                                 PATH,
+                                                 getFindParams(params),
+                                                 null,
+                                                 null),
+                          response -> readDocumentCollection(client,
+                                                             response));
+    }
 
-        if (params.containsKey("createdAfter")) {
-            Object createdAfter = params.get("createdAfter");
-            String createdAfterString = (createdAfter instanceof Date)
-                                        ? date((Date) createdAfter)
-                                        : date(createdAfter.toString());
-            getParams.put("created_after", createdAfterString);
-        }
+    /**
+     * Get every document created in a time range, by splitting the range into
+     * shards and requesting several of them at once.
+     *
+     * @param client The client instance to make requests from.
+     * @param params A key-value pair of options. Use the following options:
+     *                 - string|Date 'createdAfter' Lower date limit to filter
+     *                   by, which is required.
+     *                 - string|Date|null 'createdBefore' Upper date limit to
+     *                   filter by, which defaults to now.
+     *                 - int|null 'limit' The number of documents to request
+     *                   per shard.
+     *                 - int|null 'parallelism' The maximum number of shards
+     *                   to request at once.
+     *                 - bool|null 'ordered' Sort the documents newest first?
+     *                   Defaults to true; without it, documents are in the
+     *                   order their shards arrived.
+     *
+     * @return An array containing the document instances.
+     * @throws BoxViewException
+     */
+    public static List<Document> findParallel(BoxViewClient client,
+                                              Map<String, Object> params)
+                  throws BoxViewException {
+        return await(findParallelAsync(client, params));
+    }
 
-        Map<String, Object> response = requestJson(client,
-                                                   PATH,
-                                                   getParams,
-                                                   null,
-                                                   null);
-
-        if (response.isEmpty()
-                || !response.containsKey("document_collection")
-                || ((Map<String, Object>) response.get("document_collection"))
-                   .isEmpty()
-                || !((Map<String, Object>) response.get("document_collection"))
-                    .containsKey("entries")) {
-            String message = "response is not in a valid format.";
-            error(INVALID_RESPONSE_ERROR, message);
+    /**
+     * Get every document created in a time range asynchronously, by splitting
+     * the range into shards and requesting several of them at once.
+     *
+     * @param client The client instance to make requests from.
+     * @param params A key-value pair of options. See findParallel() for the
+     *               available options.
+     *
+     * @return A future completed with the document instances.
+     */
+    public static CompletableFuture<List<Document>> findParallelAsync(
+                                                BoxViewClient client,
+                                                Map<String, Object> params) {
+        Date createdAfter  = getDateParam(params, "createdAfter");
+        Date createdBefore = params.containsKey("createdBefore")
+                             ? getDateParam(params, "createdBefore")
+                             : new Date();
+
+        if (createdAfter == null || createdBefore == null) {
+            String message = "createdAfter is required, and createdAfter and "
+                             + "createdBefore must be RFC 3339 dates.";
+            throw new IllegalArgumentException(message);
         }
 
-        Map<String, Object> collection         =
-                      (Map<String, Object>) response.get("document_collection");
-        List<Map<String, Object>> entries =
-                          (List<Map<String, Object>>) collection.get("entries");
+        return new DocumentShardFinder(client, params).find(createdAfter,
+                                                            createdBefore);
+    }
 
-        List<Document> documents = new ArrayList<Document>();
+    /**
+     * Get every document, newest first, requesting them a page at a time as
+     * they're iterated over.
+     *
+     * @param client The client instance to make requests from.
+     *
+     * @return The documents, which are requested again every time they're
+     *         iterated over.
+     */
+    public static Iterable<Document> findAll(BoxViewClient client) {
+        return findAll(client, new HashMap<String, Object>());
+    }
 
-        for (Map<String, Object> entry : entries) {
-            documents.add(new Document(client, entry));
-        }
+    /**
+     * Get every document that meets the provided criteria, newest first,
+     * requesting them a page at a time as they're iterated over. The next
+     * page is requested while the current one is being iterated over. Errors
+     * are thrown while iterating as a CompletionException, with the
+     * BoxViewException as its cause.
+     *
+     * @param client The client instance to make requests from.
+     * @param params A key-value pair to filter the documents by. None are
+     *               necessary; all are optional. Use the following options:
+     *                 - int|null 'limit' The number of documents to request
+     *                   per page.
+     *                 - string|Date|null 'createdBefore' Upper date limit to
+     *                   filter by.
+     *                 - string|Date|null 'createdAfter' Lower date limit to
+     *                   filter by.
+     *
+     * @return The documents, which are requested again every time they're
+     *         iterated over.
+     */
+    public static Iterable<Document> findAll(BoxViewClient client,
+                                             Map<String, Object> params) {
+        Map<String, Object> findParams = new HashMap<String, Object>(params);
+        return () -> new DocumentPager(client, findParams);
+    }
 
-        return documents;
+    /**
+     * Get a stream of every document, newest first, requesting them a page at
+     * a time as the stream is consumed.
+     *
+     * @param client The client instance to make requests from.
+     *
+     * @return A sequential stream of the documents.
+     */
+    public static Stream<Document> stream(BoxViewClient client) {
+        return stream(client, new HashMap<String, Object>());
+    }
+
+    /**
+     * Get a stream of every document that meets the provided criteria, newest
+     * first, requesting them a page at a time as the stream is consumed.
+     *
+     * @param client The client instance to make requests from.
+     * @param params A key-value pair to filter the documents by. See
+     *               findAll() for the available options.
+     *
+     * @return A sequential stream of the documents.
+     */
+    public static Stream<Document> stream(BoxViewClient client,
+                                           Map<String, Object> params) {
+        int characteristics = Spliterator.ORDERED
+                              | Spliterator.DISTINCT
+                              | Spliterator.NONNULL;
+        return StreamSupport.stream(
+                   Spliterators.spliteratorUnknownSize(
+                       findAll(client, params).iterator(),
+                       characteristics),
+                   false);
     }
 
     /**
      * Create a new document instance by ID, and load it with values requested
-     * from the API.
+     * from the API, or from the client's document cache if it has them.
      *
      * @param client The client instance to make requests from.
      * @param id The document ID.
@@ -391,24 +655,76 @@ public class Document extends Base {
      */
     public static Document get(BoxViewClient client, String id)
                   throws BoxViewException {
-        String[] fields   = {"id", "created_at", "name", "status"};
-        StringBuilder sb  = new StringBuilder();
-
-        for (int i = 0; i < fields.length; i++) {
-            if (i > 0) sb.append(",");
-            sb.append(fields[i]);
+        DocumentCache cache = client.getDocumentCache();
+        Document document   = (cache != null) ? cache.get(id) : null;
+
+        if (document == null) {
+            long generation = (cache != null) ? cache.getGeneration() : 0;
+            document        = read(client, requestJsonEntity(
+                                               client,
+                                               PATH + "/" + id,
+                                               getFieldsParams(),
+                                               null,
+                                               null));
+
+            if (cache != null) cache.put(document, generation);
         }
 
-        Map<String, Object> getParams = new HashMap<String, Object>();
-        getParams.put("fields", sb.toString());
+        return document;
+    }
+
+    /**
+     * Create a new document instance by ID, and load it with values requested
+     * from the API asynchronously, or from the client's document cache if it
+     * has them.
+     *
+     * @param client The client instance to make requests from.
+     * @param id The document ID.
+     *
+     * @return A future completed with a document instance using data from the
+     *         API.
+     */
+    public static CompletableFuture<Document> getAsync(BoxViewClient client,
+                                                       String id) {
+        DocumentCache cache = client.getDocumentCache();
+        Document cached     = (cache != null) ? cache.get(id) : null;
+
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
 
-        Map<String, Object> metadata = requestJson(client,
-                                                   PATH + "/" + id,
-                                                   getParams,
-                                                   null,
-                                                   null);
+        return fetchAsync(client, id);
+    }
 
-        return new Document(client, metadata);
+    /**
+     * Request a document by ID from the API asynchronously, even if the
+     * client's document cache has it, and refresh the cache with it.
+     *
+     * @param client The client instance to make requests from.
+     * @param id The document ID.
+     *
+     * @return A future completed with a document instance using data from the
+     *         API.
+     */
+    static CompletableFuture<Document> fetchAsync(BoxViewClient client,
+                                                  String id) {
+        DocumentCache cache = client.getDocumentCache();
+        long generation     = (cache != null) ? cache.getGeneration() : 0;
+
+        return parseAsync(requestJsonEntityAsync(client,
+                                                 PATH + "/" + id,
+                                                 getFieldsParams(),
+                                                 null,
+                                                 null),
+                          response -> {
+                              Document document = read(client, response);
+
+                              if (cache != null) {
+                                  cache.put(document, generation);
+                              }
+
+                              return document;
+                          });
     }
 
     /**
@@ -458,77 +774,625 @@ public class Document extends Base {
     }
 
     /**
-     * Upload a file by URL and return a new document instance.
+     * Upload a local file asynchronously and return a future document
+     * instance.
      *
      * @param client The client instance to make requests from.
-     * @param url The URL of the file to upload.
+     * @param file The file resource to upload.
      *
-     * @return A new document instance.
-     * @throws BoxViewException
+     * @return A future completed with a new document instance.
      */
-    public static Document upload(BoxViewClient client, String url)
-                  throws BoxViewException {
-        return upload(client, url, new HashMap<String, Object>());
+    public static CompletableFuture<Document> uploadAsync(BoxViewClient client,
+                                                          File file) {
+        return uploadAsync(client, file, new HashMap<String, Object>());
     }
 
     /**
-     * Upload a file by URL and return a new document instance.
+     * Upload a local file asynchronously and return a future document
+     * instance.
      *
      * @param client The client instance to make requests from.
-     * @param url The URL of the file to upload.
-     * @param params An key-value pair of options relating to the file upload.
-     *               None are necessary; all are optional. Use the following
-     *               options:
-     *                 - string|null 'name' Override the filename of the file
-     *                   being uploaded.
-     *                 - string[]|string|null 'thumbnails' An array of
-     *                   dimensions in pixels, with each dimension formatted as
-     *                   [width]x[height], this can also be a comma-separated
-     *                   string.
-     *                 - bool|null 'nonSvg' Create a second version of the file
-     *                   that doesn't use SVG, for users with browsers that
-     *                   don't support SVG?
+     * @param file The file resource to upload.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See upload() for the available options.
+     *
+     * @return A future completed with a new document instance.
+     */
+    public static CompletableFuture<Document> uploadAsync(
+                                                  BoxViewClient client,
+                                                  File file,
+                                                  Map<String, Object> params) {
+        Map<String, Object> options = new HashMap<String, Object>();
+        options.put("file", file);
+        options.put("host", FILE_UPLOAD_HOST);
+
+        return uploadAsync(client, params, null, options);
+    }
+
+    /**
+     * Upload a file from a stream and return a new document instance.
+     *
+     * @param client The client instance to make requests from.
+     * @param stream The contents of the file, which are streamed into the
+     *               upload as they're read. The stream is closed once it has
+     *               been sent, and the upload is never retried.
+     * @param filename The name of the file.
+     * @param length The number of bytes in the stream, or -1 if it isn't
+     *               known, in which case the upload is sent in chunks.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See upload() for the available options.
      *
      * @return A new document instance.
      * @throws BoxViewException
      */
     public static Document upload(BoxViewClient client,
-                                  String url,
+                                  InputStream stream,
+                                  String filename,
+                                  long length,
                                   Map<String, Object> params)
                   throws BoxViewException {
-        Map<String, Object> postParams = new HashMap<String, Object>();
-        postParams.put("url", url);
+        ContentBody body = new StreamBody(stream, filename, length);
+        return upload(client, params, null, getFileOptions(body));
+    }
 
-        return upload(client, params, postParams, null);
+    /**
+     * Upload a file from a stream asynchronously and return a future document
+     * instance.
+     *
+     * @param client The client instance to make requests from.
+     * @param stream The contents of the file, which are streamed into the
+     *               upload as they're read. The stream is closed once it has
+     *               been sent, and the upload is never retried.
+     * @param filename The name of the file.
+     * @param length The number of bytes in the stream, or -1 if it isn't
+     *               known, in which case the upload is sent in chunks.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See upload() for the available options.
+     *
+     * @return A future completed with a new document instance.
+     */
+    public static CompletableFuture<Document> uploadAsync(
+                                                  BoxViewClient client,
+                                                  InputStream stream,
+                                                  String filename,
+                                                  long length,
+                                                  Map<String, Object> params) {
+        ContentBody body = new StreamBody(stream, filename, length);
+        return uploadAsync(client, params, null, getFileOptions(body));
     }
 
     /**
-     * Update the current document instance with new metadata.
+     * Upload a file part and return a new document instance.
      *
-     * @param data A key-value pair to instantiate the object with. Use the
-     *             following values:
-     *               - string|Date 'createdAt' The date the document was
-     *                 created.
-     *               - string 'name' The document title.
-     *               - string 'status' The document status, which can be
-     *                 'queued', 'processing', 'done', or 'error'.
+     * @param client The client instance to make requests from.
+     * @param body The file part.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See upload() for the available options.
+     *
+     * @return A new document instance.
+     * @throws BoxViewException
+     */
+    static Document upload(BoxViewClient client,
+                           ContentBody body,
+                           Map<String, Object> params)
+           throws BoxViewException {
+        return upload(client, params, null, getFileOptions(body));
+    }
+
+    /**
+     * Upload a file from a channel and return a new document instance.
+     *
+     * @param client The client instance to make requests from.
+     * @param channel The contents of the file, which are streamed into the
+     *                upload as they're read. The channel is closed once it has
+     *                been sent, and the upload is never retried.
+     * @param filename The name of the file.
+     * @param length The number of bytes in the channel, or -1 if it isn't
+     *               known, in which case the upload is sent in chunks.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See upload() for the available options.
+     *
+     * @return A new document instance.
+     * @throws BoxViewException
+     */
+    public static Document upload(BoxViewClient client,
+                                  ReadableByteChannel channel,
+                                  String filename,
+                                  long length,
+                                  Map<String, Object> params)
+                  throws BoxViewException {
+        InputStream stream = Channels.newInputStream(channel);
+        ContentBody body   = new StreamBody(stream, filename, length);
+        return upload(client, params, null, getFileOptions(body));
+    }
+
+    /**
+     * Upload a file from a channel asynchronously and return a future document
+     * instance.
+     *
+     * @param client The client instance to make requests from.
+     * @param channel The contents of the file, which are streamed into the
+     *                upload as they're read. The channel is closed once it has
+     *                been sent, and the upload is never retried.
+     * @param filename The name of the file.
+     * @param length The number of bytes in the channel, or -1 if it isn't
+     *               known, in which case the upload is sent in chunks.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See upload() for the available options.
+     *
+     * @return A future completed with a new document instance.
+     */
+    public static CompletableFuture<Document> uploadAsync(
+                                                  BoxViewClient client,
+                                                  ReadableByteChannel channel,
+                                                  String filename,
+                                                  long length,
+                                                  Map<String, Object> params) {
+        InputStream stream = Channels.newInputStream(channel);
+        ContentBody body   = new StreamBody(stream, filename, length);
+        return uploadAsync(client, params, null, getFileOptions(body));
+    }
+
+    /**
+     * Upload a file from memory and return a new document instance.
+     *
+     * @param client The client instance to make requests from.
+     * @param content The contents of the file.
+     * @param filename The name of the file.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See upload() for the available options.
+     *
+     * @return A new document instance.
+     * @throws BoxViewException
+     */
+    public static Document upload(BoxViewClient client,
+                                  byte[] content,
+                                  String filename,
+                                  Map<String, Object> params)
+                  throws BoxViewException {
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        ContentBody body  = new ByteBufferBody(buffer, filename);
+        return upload(client, params, null, getFileOptions(body));
+    }
+
+    /**
+     * Upload a file from memory asynchronously and return a future document
+     * instance.
+     *
+     * @param client The client instance to make requests from.
+     * @param content The contents of the file.
+     * @param filename The name of the file.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See upload() for the available options.
+     *
+     * @return A future completed with a new document instance.
+     */
+    public static CompletableFuture<Document> uploadAsync(
+                                                  BoxViewClient client,
+                                                  byte[] content,
+                                                  String filename,
+                                                  Map<String, Object> params) {
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        ContentBody body  = new ByteBufferBody(buffer, filename);
+        return uploadAsync(client, params, null, getFileOptions(body));
+    }
+
+    /**
+     * Upload a file from a buffer and return a new document instance.
+     *
+     * @param client The client instance to make requests from.
+     * @param content The contents of the file, from its position to its
+     *                limit. Its position isn't changed.
+     * @param filename The name of the file.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See upload() for the available options.
+     *
+     * @return A new document instance.
+     * @throws BoxViewException
+     */
+    public static Document upload(BoxViewClient client,
+                                  ByteBuffer content,
+                                  String filename,
+                                  Map<String, Object> params)
+                  throws BoxViewException {
+        ContentBody body = new ByteBufferBody(content, filename);
+        return upload(client, params, null, getFileOptions(body));
+    }
+
+    /**
+     * Upload a file from a buffer asynchronously and return a future document
+     * instance.
+     *
+     * @param client The client instance to make requests from.
+     * @param content The contents of the file, from its position to its
+     *                limit. Its position isn't changed.
+     * @param filename The name of the file.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See upload() for the available options.
+     *
+     * @return A future completed with a new document instance.
+     */
+    public static CompletableFuture<Document> uploadAsync(
+                                                  BoxViewClient client,
+                                                  ByteBuffer content,
+                                                  String filename,
+                                                  Map<String, Object> params) {
+        ContentBody body = new ByteBufferBody(content, filename);
+        return uploadAsync(client, params, null, getFileOptions(body));
+    }
+
+    /**
+     * Upload a file by URL and return a new document instance.
+     *
+     * @param client The client instance to make requests from.
+     * @param url The URL of the file to upload.
+     *
+     * @return A new document instance.
+     * @throws BoxViewException
+     */
+    public static Document upload(BoxViewClient client, String url)
+                  throws BoxViewException {
+        return upload(client, url, new HashMap<String, Object>());
+    }
+
+    /**
+     * Upload a file by URL and return a new document instance.
+     *
+     * @param client The client instance to make requests from.
+     * @param url The URL of the file to upload.
+     * @param params An key-value pair of options relating to the file upload.
+     *               None are necessary; all are optional. Use the following
+     *               options:
+     *                 - string|null 'name' Override the filename of the file
+     *                   being uploaded.
+     *                 - string[]|string|null 'thumbnails' An array of
+     *                   dimensions in pixels, with each dimension formatted as
+     *                   [width]x[height], this can also be a comma-separated
+     *                   string.
+     *                 - bool|null 'nonSvg' Create a second version of the file
+     *                   that doesn't use SVG, for users with browsers that
+     *                   don't support SVG?
+     *
+     * @return A new document instance.
+     * @throws BoxViewException
+     */
+    public static Document upload(BoxViewClient client,
+                                  String url,
+                                  Map<String, Object> params)
+                  throws BoxViewException {
+        Map<String, Object> postParams = new HashMap<String, Object>();
+        postParams.put("url", url);
+
+        return upload(client, params, postParams, null);
+    }
+
+    /**
+     * Upload a file by URL asynchronously and return a future document
+     * instance.
+     *
+     * @param client The client instance to make requests from.
+     * @param url The URL of the file to upload.
+     *
+     * @return A future completed with a new document instance.
+     */
+    public static CompletableFuture<Document> uploadAsync(BoxViewClient client,
+                                                          String url) {
+        return uploadAsync(client, url, new HashMap<String, Object>());
+    }
+
+    /**
+     * Upload a file by URL asynchronously and return a future document
+     * instance.
+     *
+     * @param client The client instance to make requests from.
+     * @param url The URL of the file to upload.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See upload() for the available options.
+     *
+     * @return A future completed with a new document instance.
+     */
+    public static CompletableFuture<Document> uploadAsync(
+                                                  BoxViewClient client,
+                                                  String url,
+                                                  Map<String, Object> params) {
+        Map<String, Object> postParams = new HashMap<String, Object>();
+        postParams.put("url", url);
+
+        return uploadAsync(client, params, postParams, null);
+    }
+
+    /**
+     * Get the content stream of a raw response.
+     *
+     * @param response The HttpEntity from the response.
+     *
+     * @return The content of the response.
+     * @throws BoxViewException
+     */
+    private static InputStream getContent(HttpEntity response)
+                   throws BoxViewException {
+        InputStream stream = null;
+
+        try {
+            stream = response.getContent();
+        } catch (IOException e) {
+            error(INVALID_RESPONSE_ERROR, e.getMessage());
+        }
+
+        return stream;
+    }
+
+    /**
+     * Get a date param, which can be a date object or a date string.
+     *
+     * @param params A key-value pair of params.
+     * @param name The name of the param.
+     *
+     * @return The date, or null if it isn't set or isn't a valid date.
+     */
+    private static Date getDateParam(Map<String, Object> params, String name) {
+        Object value = params.get(name);
+
+        if (value == null || value instanceof Date) {
+            return (Date) value;
+        }
+
+        return parseDate(value.toString());
+    }
+
+    /**
+     * Get the GET params that request every field of a document.
+     *
+     * @return A key-value pair of GET params.
+     */
+    private static Map<String, Object> getFieldsParams() {
+        String[] fields   = {"id", "created_at", "name", "status"};
+        StringBuilder sb  = new StringBuilder();
+
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) sb.append(",");
+            sb.append(fields[i]);
+        }
+
+        Map<String, Object> getParams = new HashMap<String, Object>();
+        getParams.put("fields", sb.toString());
+        return getParams;
+    }
+
+    /**
+     * Get the GET params for a list of documents that meet the provided
+     * criteria.
+     *
+     * @param params A key-value pair to filter the list of all documents
+     *               uploaded. Pass-thru from find().
+     *
+     * @return A key-value pair of GET params.
+     * @throws ParseException
+     */
+    private static Map<String, Object> getFindParams(Map<String, Object> params)
+                   throws ParseException {
+        Map<String, Object> getParams = new HashMap<String, Object>();
+
+        if (params.containsKey("limit")
+                && ((Integer) params.get("limit")) > 0) {
+            getParams.put("limit", params.get("limit"));
+        }
+
+        if (params.containsKey("createdBefore")) {
+            Object createdBefore       = params.get("createdBefore");
+            String createdBeforeString = (createdBefore instanceof Date)
+                                         ? date((Date) createdBefore)
+                                         : date(createdBefore.toString());
+            getParams.put("created_before", createdBeforeString);
+        }
+
+        if (params.containsKey("createdAfter")) {
+            Object createdAfter = params.get("createdAfter");
+            String createdAfterString = (createdAfter instanceof Date)
+                                        ? date((Date) createdAfter)
+                                        : date(createdAfter.toString());
+            getParams.put("created_after", createdAfterString);
+        }
+
+        return getParams;
+    }
+
+    /**
+     * Get the POST params for the fields that can be updated on a document.
+     *
+     * @param fields A key-value pair of the fields to update on the file.
+     *
+     * @return A key-value pair of POST params.
+     */
+    private static Map<String, Object> getUpdateParams(
+                                                  Map<String, Object> fields) {
+        Map<String, Object> postParams = new HashMap<String, Object>();
+
+        for (String field : UPDATEABLE_FIELDS) {
+            if (fields.containsKey(field)
+                    && !fields.get(field).toString().isEmpty()) {
+                postParams.put(field, fields.get(field));
+            }
+        }
+
+        return postParams;
+    }
+
+    /**
+     * Remove a document from the client's document cache, if it has one.
+     *
+     * @param client The client instance the document was requested from.
+     * @param id The document ID.
      *
      * @return void
      */
-    private void setValues(Map<String, Object> data) {
-        if (data.containsKey("created_at")) {
-            data.put("createdAt", data.get("created_at"));
-            data.remove("created_at");
+    private static void invalidate(BoxViewClient client, String id) {
+        DocumentCache cache = client.getDocumentCache();
+
+        if (cache != null) {
+            cache.invalidate(id);
         }
+    }
 
-        if (data.containsKey("createdAt")) {
-            createdAt = (data.get("createdAt") instanceof Date)
-                        ? (Date) data.get("createdAt")
-                        : parseDate(data.get("createdAt").toString());
+    /**
+     * Create document instances from a document collection response, as the
+     * response is read, without decoding it into key-value pairs first.
+     *
+     * @param client The client instance to make requests from.
+     * @param response The HttpEntity of the JSON response.
+     *
+     * @return An array containing document instances in the response.
+     * @throws BoxViewException
+     */
+    private static List<Document> readDocumentCollection(BoxViewClient client,
+                                                         HttpEntity response)
+                   throws BoxViewException {
+        List<Document> documents = null;
+        String type              = null;
+        String serverMessage     = "Server Error";
+        String message           = "response is not in a valid format.";
+
+        try (JsonReader reader = new JsonReader(
+                                     new InputStreamReader(
+                                         response.getContent(),
+                                         StandardCharsets.UTF_8))) {
+            reader.beginObject();
+
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+
+                if (name.equals("document_collection")) {
+                    documents = readEntries(client, reader);
+                } else if (name.equals("type")
+                               && reader.peek() == JsonToken.STRING) {
+                    type = reader.nextString();
+                } else if (name.equals("message")
+                               && reader.peek() == JsonToken.STRING) {
+                    serverMessage = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+
+            reader.endObject();
+        } catch (IOException e) {
+            error(INVALID_RESPONSE_ERROR, message);
+        } catch (IllegalStateException e) {
+            error(INVALID_RESPONSE_ERROR, message);
+        }
+
+        // the message may come after the type, so it's only known at the end
+        if ("error".equals(type)) {
+            error(Request.SERVER_ERROR, serverMessage);
+        }
+
+        if (documents == null) {
+            error(INVALID_RESPONSE_ERROR, message);
         }
 
-        if (data.containsKey("name"))   name   = (String) data.get("name");
-        if (data.containsKey("status")) status = (String) data.get("status");
+        return documents;
+    }
+
+    /**
+     * Read the entries of a document collection.
+     *
+     * @param client The client instance to make requests from.
+     * @param reader The JSON reader, positioned at the document collection.
+     *
+     * @return An array containing document instances in the collection, or
+     *         null if it has no entries.
+     * @throws IOException
+     */
+    private static List<Document> readEntries(BoxViewClient client,
+                                              JsonReader reader)
+                   throws IOException {
+        List<Document> documents = null;
+
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("entries")) {
+                reader.skipValue();
+                continue;
+            }
+
+            DocumentAdapter adapter = new DocumentAdapter(client);
+            documents               = new ArrayList<Document>();
+            reader.beginArray();
+
+            while (reader.hasNext()) {
+                documents.add(adapter.read(reader));
+            }
+
+            reader.endArray();
+        }
+
+        reader.endObject();
+        return documents;
+    }
+
+    /**
+     * Copy the document, so that updating the copy doesn't change this one.
+     *
+     * @return A new document instance with the same values.
+     */
+    Document copy() {
+        return new Document(client, id, createdAt, name, status);
+    }
+
+    /**
+     * Read a document from the JSON response of a request about a single
+     * document.
+     *
+     * @param client The client instance to make requests from.
+     * @param response The HttpEntity of the JSON response.
+     *
+     * @return A document instance.
+     * @throws BoxViewException
+     */
+    private static Document read(BoxViewClient client, HttpEntity response)
+                   throws BoxViewException {
+        Document document = readJson(response, new DocumentAdapter(client));
+
+        if (document.getId() == null) {
+            String message = "response is not in a valid format.";
+            error(Request.JSON_RESPONSE_ERROR, message);
+        }
+
+        return document;
+    }
+
+    /**
+     * Get the date a document was created from a key-value pair.
+     *
+     * @param data A key-value pair with the date under 'createdAt' or
+     *             'created_at', as a date object or an RFC 3339 string.
+     *
+     * @return The date the document was created, or null.
+     */
+    private static Date getCreatedAt(Map<String, Object> data) {
+        Object createdAt = data.containsKey("createdAt")
+                           ? data.get("createdAt")
+                           : data.get("created_at");
+
+        if (createdAt == null || createdAt instanceof Date) {
+            return (Date) createdAt;
+        }
+
+        return parseDate(createdAt.toString());
+    }
+
+    /**
+     * Update the current document instance with the values of an updated
+     * copy of it. The ID and creation date never change.
+     *
+     * @param updated The updated document.
+     *
+     * @return void
+     */
+    private void setValues(Document updated) {
+        if (updated.name != null)   name   = updated.name;
+        if (updated.status != null) status = updated.status;
     }
 
     /**
@@ -551,6 +1415,70 @@ public class Document extends Base {
                                    Map<String, Object> postParams,
                                    Map<String, Object> options)
                    throws BoxViewException {
+        HttpEntity response = requestJsonEntity(client,
+                                                PATH,
+                                                null,
+                                                getUploadParams(params,
+                                                                postParams),
+                                                options);
+        return read(client, response);
+    }
+
+    /**
+     * Generic asynchronous upload function used by the other asynchronous
+     * upload functions.
+     *
+     * @param client The client instance to make requests from.
+     * @param params A key-value pair of options relating to the file upload.
+     *               Pass-thru from the other upload functions.
+     * @param postParams A key-value pair of POST params to be sent in the body.
+     * @param options A key-value pair of request options that may modify the
+     *                 way the request is made.
+     *
+     * @return A future completed with a new document instance.
+     */
+    private static CompletableFuture<Document> uploadAsync(
+                                                BoxViewClient client,
+                                                Map<String, Object> params,
+                                                Map<String, Object> postParams,
+                                                Map<String, Object> options) {
+        return parseAsync(requestJsonEntityAsync(client,
+                                                 PATH,
+                                                 null,
+                                                 getUploadParams(params,
+                                                                 postParams),
+                                                 options),
+                          response -> read(client, response));
+    }
+
+    /**
+     * Get the request options for uploading the contents of a file that isn't
+     * on disk.
+     *
+     * @param body The file part of the upload.
+     *
+     * @return A key-value pair of request options.
+     */
+    private static Map<String, Object> getFileOptions(ContentBody body) {
+        Map<String, Object> options = new HashMap<String, Object>();
+        options.put("file", body);
+        options.put("host", FILE_UPLOAD_HOST);
+
+        return options;
+    }
+
+    /**
+     * Get the POST params for an upload.
+     *
+     * @param params A key-value pair of options relating to the file upload.
+     *               Pass-thru from the other upload functions.
+     * @param postParams A key-value pair of POST params to be sent in the body.
+     *
+     * @return A key-value pair of POST params.
+     */
+    private static Map<String, Object> getUploadParams(
+                                              Map<String, Object> params,
+                                              Map<String, Object> postParams) {
         if (postParams == null) {
             postParams = new HashMap<String, Object>();
         }
@@ -582,11 +1510,6 @@ public class Document extends Base {
             postParams.put("non_svg", params.get("nonSvg"));
         }
 
-        Map<String, Object> metadata = requestJson(client,
-                                                   PATH,
-                                                   null,
-                                                   postParams,
-                                                   options);
-        return new Document(client, metadata);
+        return postParams;
     }
 }
@@ -0,0 +1,114 @@
+package com.box.view;
+
+import java.io.IOException;
+import java.util.Date;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads a document straight from its JSON representation in an API response,
+ * and writes it back in the same shape, without going through key-value
+ * pairs or reflection.
+ */
+class DocumentAdapter extends TypeAdapter<Document> {
+    /**
+     * The client instance the documents make requests from.
+     */
+    private final BoxViewClient client;
+
+    /**
+     * Set up the adapter.
+     *
+     * @param client The client instance the documents make requests from.
+     */
+    DocumentAdapter(BoxViewClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Read a document.
+     *
+     * @param reader The JSON reader, positioned at the document.
+     *
+     * @return A document instance, or null if the JSON is null.
+     * @throws IOException
+     * @throws Base.ServerErrorResponse If the JSON is an error response.
+     */
+    public Document read(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        String id      = null;
+        Date createdAt = null;
+        String name    = null;
+        String status  = null;
+        String type    = null;
+        String message = "Server Error";
+
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+
+            if (reader.peek() != JsonToken.STRING) {
+                reader.skipValue();
+            } else if (field.equals("id")) {
+                id = reader.nextString();
+            } else if (field.equals("created_at")) {
+                createdAt = Base.parseDate(reader.nextString());
+            } else if (field.equals("name")) {
+                name = reader.nextString();
+            } else if (field.equals("status")) {
+                status = reader.nextString();
+            } else if (field.equals("type")) {
+                type = reader.nextString();
+            } else if (field.equals("message")) {
+                message = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+
+        reader.endObject();
+
+        // the message may come after the type, so it's only known at the end
+        if ("error".equals(type)) {
+            throw new Base.ServerErrorResponse(message);
+        }
+
+        return new Document(client, id, createdAt, name, status);
+    }
+
+    /**
+     * Write a document.
+     *
+     * @param writer The JSON writer.
+     * @param document The document instance.
+     *
+     * @return void
+     * @throws IOException
+     */
+    public void write(JsonWriter writer, Document document)
+                throws IOException {
+        if (document == null) {
+            writer.nullValue();
+            return;
+        }
+
+        Date createdAt = document.getCreatedAt();
+
+        writer.beginObject();
+        writer.name("type").value("document");
+        writer.name("id").value(document.getId());
+        writer.name("created_at")
+              .value(createdAt != null ? Base.date(createdAt) : null);
+        writer.name("name").value(document.getName());
+        writer.name("status").value(document.getStatus());
+        writer.endObject();
+    }
+}
@@ -0,0 +1,297 @@
+package com.box.view;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the metadata of documents, so that getting a document doesn't
+ * always make a request. A document that is done converting (or failed to)
+ * hardly ever changes, so it's kept for a long time; a document that is still
+ * queued or processing is only kept briefly, since its status is about to
+ * change.
+ *
+ * The cache holds a bounded number of documents, and evicts the least
+ * recently used one when it's full. Updating or deleting a document through
+ * the client removes it from the cache, and a request for the document that
+ * was already in flight then can't put its stale copy back.
+ */
+public class DocumentCache {
+    /**
+     * The defaults of the cache.
+     */
+    public static final Integer DEFAULT_MAX_SIZE    = 1000;
+    public static final Integer DEFAULT_DONE_TTL    = 60 * 60 * 1000;
+    public static final Integer DEFAULT_PENDING_TTL = 5 * 1000;
+
+    /**
+     * A cached document, along with when it expires, or a record that a
+     * document was invalidated.
+     */
+    private static final class Entry {
+        /**
+         * The document, or null if it was invalidated.
+         */
+        private final Document document;
+
+        /**
+         * When the entry expires, from System.nanoTime().
+         */
+        private final long expiresAt;
+
+        /**
+         * The generation the document was invalidated in, or 0.
+         */
+        private final long invalidatedIn;
+
+        /**
+         * Create an entry.
+         *
+         * @param document The document, or null if it was invalidated.
+         * @param expiresAt When the entry expires, from System.nanoTime().
+         * @param invalidatedIn The generation the document was invalidated
+         *                      in, or 0.
+         */
+        Entry(Document document, long expiresAt, long invalidatedIn) {
+            this.document      = document;
+            this.expiresAt     = expiresAt;
+            this.invalidatedIn = invalidatedIn;
+        }
+    }
+
+    /**
+     * The number of nanoseconds a document that is done or failed is kept.
+     */
+    private final long doneTtl;
+
+    /**
+     * The number of nanoseconds a document that is queued or processing is
+     * kept.
+     */
+    private final long pendingTtl;
+
+    /**
+     * The cached documents by ID, from least to most recently used.
+     */
+    private final LinkedHashMap<String, Entry> entries;
+
+    /**
+     * Counts invalidations, so that a document requested before one can be
+     * told apart from a document requested after it.
+     */
+    private long generation;
+
+    /**
+     * The latest generation whose invalidations are no longer recorded,
+     * because they were evicted or cleared.
+     */
+    private long forgottenGeneration;
+
+    /**
+     * The number of lookups that found a document.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * The number of lookups that didn't find a document, or found an expired
+     * one.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * The number of documents evicted to make room for others.
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Instantiate the cache with the defaults.
+     */
+    public DocumentCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_DONE_TTL, DEFAULT_PENDING_TTL);
+    }
+
+    /**
+     * Instantiate the cache.
+     *
+     * @param maxSize The maximum number of documents to keep.
+     * @param doneTtl How many milliseconds a document that is done or failed
+     *                is kept.
+     * @param pendingTtl How many milliseconds a document that is queued or
+     *                   processing is kept.
+     */
+    public DocumentCache(final int maxSize, long doneTtl, long pendingTtl) {
+        if (maxSize < 1 || doneTtl < 0 || pendingTtl < 0) {
+            String message = "maxSize must be at least 1, and TTLs can't be "
+                             + "negative.";
+            throw new IllegalArgumentException(message);
+        }
+
+        this.doneTtl    = TimeUnit.MILLISECONDS.toNanos(doneTtl);
+        this.pendingTtl = TimeUnit.MILLISECONDS.toNanos(pendingTtl);
+        this.entries    = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            protected boolean removeEldestEntry(
+                                            Map.Entry<String, Entry> eldest) {
+                if (size() <= maxSize) {
+                    return false;
+                }
+
+                Entry entry = eldest.getValue();
+
+                if (entry.document != null) {
+                    evictions.incrementAndGet();
+                } else {
+                    forgottenGeneration = Math.max(forgottenGeneration,
+                                                   entry.invalidatedIn);
+                }
+
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Get the number of lookups that found a document.
+     *
+     * @return The number of hits.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of lookups that didn't find a document, or found an
+     * expired one.
+     *
+     * @return The number of misses.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Get the number of documents evicted to make room for others.
+     *
+     * @return The number of evictions.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Get the number of documents in the cache, including expired ones that
+     * haven't been looked up since, and records of invalidated ones.
+     *
+     * @return The number of documents.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Remove a document from the cache.
+     *
+     * @param id The document ID.
+     *
+     * @return void
+     */
+    public synchronized void invalidate(String id) {
+        generation++;
+        entries.put(id, new Entry(null, 0, generation));
+    }
+
+    /**
+     * Remove every document from the cache.
+     *
+     * @return void
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        forgottenGeneration = generation;
+        entries.clear();
+    }
+
+    /**
+     * Get the current generation, to pass to put() with a document requested
+     * from now on.
+     *
+     * @return The generation.
+     */
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Look up a document.
+     *
+     * @param id The document ID.
+     *
+     * @return A copy of the document, or null if it isn't cached.
+     */
+    Document get(String id) {
+        Entry entry;
+
+        synchronized (this) {
+            entry = entries.get(id);
+
+            if (entry != null && entry.document == null) {
+                entry = null;
+            } else if (entry != null
+                           && System.nanoTime() - entry.expiresAt >= 0) {
+                entries.remove(id);
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        return entry.document.copy();
+    }
+
+    /**
+     * Cache a document, for as long as its status allows, unless it was
+     * invalidated after it was requested.
+     *
+     * @param document The document, as returned by the API.
+     * @param generation The generation when the document was requested, from
+     *                   getGeneration().
+     *
+     * @return void
+     */
+    void put(Document document, long generation) {
+        String status = document.getStatus();
+        long ttl      = ("queued".equals(status)
+                         || "processing".equals(status))
+                        ? pendingTtl
+                        : doneTtl;
+
+        if (ttl == 0) {
+            return;
+        }
+
+        Entry entry = new Entry(document.copy(), System.nanoTime() + ttl, 0);
+
+        synchronized (this) {
+            // the document may be stale if it was invalidated since
+            if (generation < forgottenGeneration) {
+                return;
+            }
+
+            Entry previous = entries.get(document.getId());
+
+            if (previous != null
+                    && previous.document == null
+                    && previous.invalidatedIn > generation) {
+                return;
+            }
+
+            entries.put(document.getId(), entry);
+        }
+    }
+}
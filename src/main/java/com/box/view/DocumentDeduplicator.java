@@ -0,0 +1,624 @@
+package com.box.view;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Uploads files only if a file with the same contents hasn't been uploaded
+ * before, and otherwise returns the document that was created for it.
+ *
+ * Files are identified by the SHA-256 hash of their contents, computed in a
+ * single streaming pass. The hashes of uploaded files and the IDs of their
+ * documents are kept in an append-only index file, so they're remembered
+ * across runs. When a document in the index no longer exists in the API, or
+ * failed to convert, the file is uploaded again.
+ *
+ * A new file is hashed again as it's uploaded, and its document is only
+ * indexed if the contents sent are the ones that were looked up, so a file
+ * that changes in between isn't indexed under its old contents.
+ *
+ * Only the contents are compared; a file uploaded with different options,
+ * such as a different name, still returns the existing document. Concurrent
+ * uploads of the same contents are only uploaded once.
+ *
+ * If the index file can't be written to, the upload that couldn't be
+ * recorded fails with INDEX_ERROR, and so does every later upload that would
+ * have to create a document, since the next run wouldn't know about it.
+ */
+public class DocumentDeduplicator implements Closeable {
+    /**
+     * Deduplicator error codes.
+     */
+    public static final String INDEX_ERROR = "index_error";
+
+    /**
+     * The size of the buffer files are hashed through.
+     */
+    private static final int READ_SIZE = 64 * 1024;
+
+    /**
+     * The most bytes of a stream held in memory. A bigger stream is spilled
+     * to a temporary file as it's hashed.
+     */
+    private static final int MAX_BUFFERED_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * A line of the index.
+     */
+    private static final class Entry {
+        /**
+         * The hex-encoded SHA-256 hash of the file's contents.
+         */
+        private String sha256;
+
+        /**
+         * The ID of the document, or null if the document was deleted or
+         * failed to convert.
+         */
+        private String id;
+
+        /**
+         * Create a line of the index.
+         *
+         * @param sha256 The hash of the file's contents.
+         * @param id The ID of the document, or null.
+         */
+        Entry(String sha256, String id) {
+            this.sha256 = sha256;
+            this.id     = id;
+        }
+    }
+
+    /**
+     * An upload of a file, made only if its contents are new.
+     */
+    private interface Upload {
+        /**
+         * Upload the file.
+         *
+         * @param digest Hashes the contents that are actually sent.
+         *
+         * @return The new document.
+         * @throws BoxViewException
+         */
+        Document run(MessageDigest digest) throws BoxViewException;
+    }
+
+    /**
+     * The client instance to make requests from.
+     */
+    private final BoxViewClient client;
+
+    /**
+     * The index file.
+     */
+    private final JsonLinesFile indexFile;
+
+    /**
+     * The document IDs by the hash of their file's contents.
+     */
+    private final Map<String, String> index =
+                                    new ConcurrentHashMap<String, String>();
+
+    /**
+     * The uploads in flight by the hash of their file's contents.
+     */
+    private final Map<String, CompletableFuture<Document>> uploading =
+        new ConcurrentHashMap<String, CompletableFuture<Document>>();
+
+    /**
+     * The number of files whose contents were already uploaded.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * The number of files whose contents were new.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * The number of bytes that didn't have to be uploaded.
+     */
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    /**
+     * The error the index file failed to be written with, or null. Once it
+     * has failed, no more uploads are started.
+     */
+    private volatile IOException writeError;
+
+    /**
+     * Set up the deduplicator, and read the index.
+     *
+     * @param client The client instance to make requests from.
+     * @param indexFile The index file. If it doesn't exist yet, it's created
+     *                  by the first upload.
+     *
+     * @throws BoxViewException
+     */
+    public DocumentDeduplicator(BoxViewClient client, File indexFile)
+           throws BoxViewException {
+        this.client    = client;
+        this.indexFile = new JsonLinesFile(indexFile.toPath());
+
+        try {
+            this.indexFile.read(Entry.class, entry -> {
+                if (entry.sha256 == null) {
+                    return;
+                }
+
+                if (entry.id != null) {
+                    index.put(entry.sha256, entry.id);
+                } else {
+                    index.remove(entry.sha256);
+                }
+            });
+        } catch (IOException e) {
+            throw new BoxViewException(e.getMessage(), INDEX_ERROR);
+        }
+    }
+
+    /**
+     * Upload a local file, unless a file with the same contents was uploaded
+     * before.
+     *
+     * @param file The file resource to upload.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See Document.upload() for the available options.
+     *
+     * @return The new document, or the existing one.
+     * @throws BoxViewException
+     */
+    public Document upload(File file, Map<String, Object> params)
+                    throws BoxViewException {
+        MessageDigest digest = createDigest();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                                                    StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_SIZE);
+
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            throw new BoxViewException(e.getMessage(),
+                                       Document.INVALID_FILE_ERROR);
+        }
+
+        return uploadFile(toHex(digest.digest()),
+                          file,
+                          file.getName(),
+                          params);
+    }
+
+    /**
+     * Upload a file from a stream, unless a file with the same contents was
+     * uploaded before. The stream is read as it's hashed, so that it doesn't
+     * have to be read again to be uploaded, and is then closed. Up to 8 MB is
+     * held in memory; a bigger stream is written to a temporary file, which
+     * is deleted once the upload is done.
+     *
+     * @param stream The contents of the file.
+     * @param filename The name of the file.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See Document.upload() for the available options.
+     *
+     * @return The new document, or the existing one.
+     * @throws BoxViewException
+     */
+    public Document upload(InputStream stream,
+                           String filename,
+                           Map<String, Object> params)
+                    throws BoxViewException {
+        MessageDigest digest         = createDigest();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        File spilled                 = null;
+
+        try (InputStream in = new DigestInputStream(stream, digest)) {
+            // reading one byte past the limit shows whether there's more
+            long buffered = IOUtils.copyLarge(in,
+                                              buffer,
+                                              0,
+                                              MAX_BUFFERED_SIZE + 1);
+
+            if (buffered > MAX_BUFFERED_SIZE) {
+                spilled = File.createTempFile("box-view-", ".upload");
+
+                try (OutputStream out = new FileOutputStream(spilled)) {
+                    buffer.writeTo(out);
+                    buffer.reset();
+                    IOUtils.copyLarge(in, out);
+                }
+            }
+        } catch (IOException e) {
+            if (spilled != null) {
+                spilled.delete();
+            }
+
+            throw new BoxViewException(e.getMessage(),
+                                       Document.INVALID_FILE_ERROR);
+        }
+
+        String sha256 = toHex(digest.digest());
+
+        if (spilled == null) {
+            byte[] content = buffer.toByteArray();
+
+            return upload(sha256, content.length, sent -> {
+                sent.update(content);
+                return Document.upload(client, content, filename, params);
+            });
+        }
+
+        try {
+            return uploadFile(sha256, spilled, filename, params);
+        } finally {
+            spilled.delete();
+        }
+    }
+
+    /**
+     * Upload a file from memory, unless a file with the same contents was
+     * uploaded before.
+     *
+     * @param content The contents of the file.
+     * @param filename The name of the file.
+     * @param params A key-value pair of options relating to the file upload.
+     *               See Document.upload() for the available options.
+     *
+     * @return The new document, or the existing one.
+     * @throws BoxViewException
+     */
+    public Document upload(byte[] content,
+                           String filename,
+                           Map<String, Object> params)
+                    throws BoxViewException {
+        MessageDigest digest = createDigest();
+        digest.update(content);
+
+        return upload(toHex(digest.digest()),
+                      content.length,
+                      sent -> {
+                          sent.update(content);
+                          return Document.upload(client,
+                                                 content,
+                                                 filename,
+                                                 params);
+                      });
+    }
+
+    /**
+     * Get the number of uploads that returned an existing document.
+     *
+     * @return The number of uploads.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of uploads that created a new document.
+     *
+     * @return The number of uploads.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Get the share of uploads that returned an existing document.
+     *
+     * @return The hit rate, from 0 to 1.
+     */
+    public double getHitRate() {
+        long hitCount = hits.get();
+        long total    = hitCount + misses.get();
+
+        return (total > 0) ? (double) hitCount / total : 0;
+    }
+
+    /**
+     * Get the number of bytes that didn't have to be uploaded.
+     *
+     * @return The number of bytes.
+     */
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    /**
+     * Get the number of distinct contents in the index.
+     *
+     * @return The number of documents.
+     */
+    public int getIndexSize() {
+        return index.size();
+    }
+
+    /**
+     * Close the index file.
+     *
+     * @return void
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        indexFile.close();
+    }
+
+    /**
+     * Return the existing document for a file's contents, or upload it.
+     *
+     * @param sha256 The hash of the file's contents.
+     * @param file The file.
+     * @param filename The name of the file in the upload.
+     * @param params A key-value pair of options relating to the file upload.
+     *
+     * @return The new document, or the existing one.
+     * @throws BoxViewException
+     */
+    private Document uploadFile(String sha256,
+                                File file,
+                                String filename,
+                                Map<String, Object> params)
+                     throws BoxViewException {
+        return upload(sha256, file.length(), sent -> {
+            FileChannelBody body = new FileChannelBody(file, filename, sent);
+            return Document.upload(client, body, params);
+        });
+    }
+
+    /**
+     * Return the existing document for some contents, or upload them.
+     *
+     * @param sha256 The hash of the contents.
+     * @param size The number of bytes in the contents.
+     * @param upload Uploads the contents.
+     *
+     * @return The new document, or the existing one.
+     * @throws BoxViewException
+     */
+    private Document upload(String sha256, long size, Upload upload)
+                     throws BoxViewException {
+        while (true) {
+            Document existing = lookup(sha256);
+
+            if (existing != null) {
+                hit(size);
+                return existing;
+            }
+
+            CompletableFuture<Document> future =
+                                            new CompletableFuture<Document>();
+            CompletableFuture<Document> other  =
+                                        uploading.putIfAbsent(sha256, future);
+
+            if (other != null) {
+                Document document = join(other);
+
+                if (document != null) {
+                    hit(size);
+                    return document;
+                }
+
+                // the other upload didn't send these contents, so look again
+                continue;
+            }
+
+            try {
+                return upload(sha256, size, upload, future);
+            } catch (BoxViewException e) {
+                future.completeExceptionally(e);
+                throw e;
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+                throw e;
+            } finally {
+                uploading.remove(sha256, future);
+            }
+        }
+    }
+
+    /**
+     * Upload some contents once no other thread is uploading them, and index
+     * the new document if the contents sent were the ones that were hashed.
+     *
+     * @param sha256 The hash of the contents.
+     * @param size The number of bytes in the contents.
+     * @param upload Uploads the contents.
+     * @param future Completed with the document for the contents, or with
+     *               null if the contents sent were different.
+     *
+     * @return The new document, or the existing one.
+     * @throws BoxViewException
+     */
+    private Document upload(String sha256,
+                            long size,
+                            Upload upload,
+                            CompletableFuture<Document> future)
+                     throws BoxViewException {
+        // another thread may have finished uploading the same contents since
+        // the lookup
+        Document existing = lookup(sha256);
+
+        if (existing != null) {
+            hit(size);
+            future.complete(existing);
+            return existing;
+        }
+
+        // an upload that can't be recorded would be repeated by the next
+        // run, which is what the index is there to prevent
+        IOException error = writeError;
+
+        if (error != null) {
+            String message = "The index can't be written to: "
+                           + error.getMessage();
+            throw new BoxViewException(message, INDEX_ERROR);
+        }
+
+        MessageDigest sent = createDigest();
+        Document document  = upload.run(sent);
+        misses.incrementAndGet();
+
+        // a file that changed after it was hashed created a document with
+        // other contents, which mustn't be returned for the hashed ones
+        if (!sha256.equals(toHex(sent.digest()))) {
+            future.complete(null);
+            return document;
+        }
+
+        index.put(sha256, document.getId());
+        future.complete(document);
+
+        append(new Entry(sha256, document.getId()));
+        return document;
+    }
+
+    /**
+     * Look up the existing document for some contents. The document is always
+     * requested from the API, rather than from the client's document cache,
+     * so that one deleted elsewhere isn't returned. A document that is gone
+     * or failed to convert is dropped from the index, so that the contents
+     * are uploaded again.
+     *
+     * @param sha256 The hash of the contents.
+     *
+     * @return The existing document, or null if there is none.
+     * @throws BoxViewException
+     */
+    private Document lookup(String sha256) throws BoxViewException {
+        String id = index.get(sha256);
+
+        if (id == null) {
+            return null;
+        }
+
+        try {
+            Document document = join(Document.fetchAsync(client, id));
+
+            if (!"error".equals(document.getStatus())) {
+                return document;
+            }
+        } catch (BoxViewException e) {
+            if (!Request.NOT_FOUND_ERROR.equals(e.getCode())) {
+                throw e;
+            }
+        }
+
+        if (index.remove(sha256, id)) {
+            append(new Entry(sha256, null));
+        }
+
+        return null;
+    }
+
+    /**
+     * Count an upload that returned an existing document.
+     *
+     * @param size The number of bytes that didn't have to be uploaded.
+     *
+     * @return void
+     */
+    private void hit(long size) {
+        hits.incrementAndGet();
+        bytesSaved.addAndGet(size);
+    }
+
+    /**
+     * Append a line to the index file. If it can't be written, no more
+     * uploads are started.
+     *
+     * @param entry The line.
+     *
+     * @return void
+     * @throws BoxViewException
+     */
+    private void append(Entry entry) throws BoxViewException {
+        try {
+            indexFile.append(entry);
+        } catch (IOException e) {
+            writeError = e;
+
+            String message = (entry.id != null)
+                             ? "The document " + entry.id + " was uploaded, "
+                               + "but couldn't be added to the index: "
+                               + e.getMessage()
+                             : e.getMessage();
+            throw new BoxViewException(message, INDEX_ERROR);
+        }
+    }
+
+    /**
+     * Wait for a document, such as from another thread's upload of the same
+     * contents.
+     *
+     * @param future The document.
+     *
+     * @return The document.
+     * @throws BoxViewException
+     */
+    private static Document join(CompletableFuture<Document> future)
+                            throws BoxViewException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof BoxViewException) {
+                throw (BoxViewException) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * Create a SHA-256 digest.
+     *
+     * @return A new digest.
+     */
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Encode a hash as lowercase hex.
+     *
+     * @param hash The hash.
+     *
+     * @return The hex string.
+     */
+    private static String toHex(byte[] hash) {
+        char[] hex = new char[hash.length * 2];
+
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2]     = Character.forDigit((hash[i] >> 4) & 0xf, 16);
+            hex[i * 2 + 1] = Character.forDigit(hash[i] & 0xf, 16);
+        }
+
+        return new String(hex);
+    }
+}
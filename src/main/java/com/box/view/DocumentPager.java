@@ -0,0 +1,209 @@
+package com.box.view;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Walks every document that matches a find, newest first, one page at a
+ * time. Documents are listed newest first, so the oldest created_at on a page
+ * becomes the created_before of the next page. The next page is requested as
+ * soon as the current one arrives, so it's usually ready by the time the
+ * current one has been consumed, and no more than two pages are held at once.
+ *
+ * created_before only filters to the millisecond, so documents created in
+ * the same millisecond as the oldest on a page could fall between pages. To
+ * avoid that, the next page starts a millisecond later and skips documents
+ * that were already returned. If a whole page was created in the same
+ * millisecond, the rest of that millisecond is skipped, since there's no way
+ * to page through it.
+ *
+ * Errors are thrown from hasNext() and next() as a CompletionException, with
+ * the BoxViewException as its cause.
+ */
+class DocumentPager implements Iterator<Document> {
+    /**
+     * The default number of documents to request per page.
+     */
+    public static final Integer DEFAULT_PAGE_SIZE = 50;
+
+    /**
+     * The client instance to make requests from.
+     */
+    private final BoxViewClient client;
+
+    /**
+     * The number of documents to request per page.
+     */
+    private final int pageSize;
+
+    /**
+     * Lower date limit to filter by, or null.
+     */
+    private final Object createdAfter;
+
+    /**
+     * The documents of the current page that haven't been returned yet.
+     */
+    private Iterator<Document> page = Collections.<Document>emptyIterator();
+
+    /**
+     * The next page, which may still be loading, or null if there are no more
+     * pages.
+     */
+    private CompletableFuture<List<Document>> nextPage;
+
+    /**
+     * The created_at of the oldest document returned so far.
+     */
+    private Date oldest;
+
+    /**
+     * The IDs of the documents returned so far that were created at the same
+     * time as the oldest one.
+     */
+    private Set<String> oldestIds = new HashSet<String>();
+
+    /**
+     * Start walking the documents, and request the first page.
+     *
+     * @param client The client instance to make requests from.
+     * @param params A key-value pair to filter the documents by. See
+     *               Document.findAll() for the available options.
+     */
+    DocumentPager(BoxViewClient client, Map<String, Object> params) {
+        this.client = client;
+
+        pageSize     = (params.containsKey("limit")
+                        && ((Integer) params.get("limit")) > 0)
+                       ? (Integer) params.get("limit")
+                       : DEFAULT_PAGE_SIZE;
+        createdAfter = params.get("createdAfter");
+        nextPage     = fetch(params.get("createdBefore"));
+    }
+
+    /**
+     * Is there another document? This waits for the next page if the current
+     * one has been consumed.
+     *
+     * @return Is there another document?
+     */
+    public boolean hasNext() {
+        while (!page.hasNext()) {
+            if (nextPage == null) {
+                return false;
+            }
+
+            List<Document> documents = nextPage.join();
+            nextPage                 = null;
+            page                     = accept(documents).iterator();
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the next document. This waits for the next page if the current one
+     * has been consumed.
+     *
+     * @return The next document.
+     */
+    public Document next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        return page.next();
+    }
+
+    /**
+     * Take in a page of documents, and request the page after it if there
+     * could be one.
+     *
+     * @param documents The documents on the page.
+     *
+     * @return The documents on the page that haven't been returned yet.
+     */
+    private List<Document> accept(List<Document> documents) {
+        List<Document> accepted = new ArrayList<Document>(documents.size());
+        Date previous           = oldest;
+        boolean sameTime        = true;
+
+        for (Document document : documents) {
+            Date createdAt = document.getCreatedAt();
+
+            if (createdAt == null) {
+                continue;
+            }
+
+            if (previous != null
+                    && createdAt.equals(previous)
+                    && oldestIds.contains(document.getId())) {
+                continue;
+            }
+
+            accepted.add(document);
+
+            if (oldest == null || createdAt.before(oldest)) {
+                oldest    = createdAt;
+                oldestIds = new HashSet<String>();
+            }
+
+            if (createdAt.equals(oldest)) {
+                oldestIds.add(document.getId());
+            }
+        }
+
+        // a short page is the last one
+        if (documents.size() < pageSize || oldest == null) {
+            return accepted;
+        }
+
+        for (Document document : documents) {
+            if (!oldest.equals(document.getCreatedAt())) {
+                sameTime = false;
+            }
+        }
+
+        if (sameTime) {
+            nextPage = fetch(oldest);
+        } else {
+            nextPage = fetch(new Date(oldest.getTime() + 1));
+        }
+
+        return accepted;
+    }
+
+    /**
+     * Request a page of documents.
+     *
+     * @param createdBefore Upper date limit to filter by, or null.
+     *
+     * @return The future documents on the page.
+     */
+    private CompletableFuture<List<Document>> fetch(Object createdBefore) {
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("limit", pageSize);
+
+        if (createdBefore != null) params.put("createdBefore", createdBefore);
+        if (createdAfter != null)  params.put("createdAfter", createdAfter);
+
+        try {
+            return Document.findAsync(client, params);
+        } catch (ParseException e) {
+            CompletableFuture<List<Document>> failed =
+                                    new CompletableFuture<List<Document>>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+}
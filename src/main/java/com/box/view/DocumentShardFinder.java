@@ -0,0 +1,306 @@
+package com.box.view;
+
+import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Finds every document created in a time range by splitting the range into
+ * shards and requesting several of them at once.
+ *
+ * Documents are listed newest first, so a shard that comes back with a full
+ * page has every document that is newer than the oldest one on the page. Those
+ * are kept, and the rest of the shard is split in two and requested again, so
+ * dense stretches of time end up in small shards and sparse ones in large
+ * shards. A full page of documents created in the same millisecond can't be
+ * split any further, so only that page of them is found.
+ */
+class DocumentShardFinder {
+    /**
+     * The default number of shards requested at once.
+     */
+    public static final Integer DEFAULT_PARALLELISM = 8;
+
+    /**
+     * The default number of documents to request per shard.
+     */
+    public static final Integer DEFAULT_PAGE_SIZE = 50;
+
+    /**
+     * Orders documents newest first, and by ID for the same created_at.
+     */
+    private static final Comparator<Document> NEWEST_FIRST =
+        Comparator.comparing(Document::getCreatedAt,
+                             Comparator.reverseOrder())
+                  .thenComparing(Document::getId);
+
+    /**
+     * A range of time to find documents in, from start (inclusive) to end
+     * (exclusive), in milliseconds since the epoch.
+     */
+    private static final class Shard {
+        /**
+         * The start of the shard, which is inclusive.
+         */
+        private final long start;
+
+        /**
+         * The end of the shard, which is exclusive.
+         */
+        private final long end;
+
+        /**
+         * Create a shard.
+         *
+         * @param start The start of the shard, which is inclusive.
+         * @param end The end of the shard, which is exclusive.
+         */
+        Shard(long start, long end) {
+            this.start = start;
+            this.end   = end;
+        }
+    }
+
+    /**
+     * The client instance to make requests from.
+     */
+    private final BoxViewClient client;
+
+    /**
+     * The maximum number of shards requested at once.
+     */
+    private final int parallelism;
+
+    /**
+     * The number of documents to request per shard.
+     */
+    private final int pageSize;
+
+    /**
+     * Are the documents sorted newest first, or left in the order they
+     * arrived?
+     */
+    private final boolean ordered;
+
+    /**
+     * The shards waiting to be requested.
+     */
+    private final Deque<Shard> pending = new ArrayDeque<Shard>();
+
+    /**
+     * The number of shards being requested.
+     */
+    private int inFlight;
+
+    /**
+     * The documents found so far.
+     */
+    private final List<Document> documents = new ArrayList<Document>();
+
+    /**
+     * The future completed with every document found.
+     */
+    private final CompletableFuture<List<Document>> result =
+                                        new CompletableFuture<List<Document>>();
+
+    /**
+     * Set up the finder.
+     *
+     * @param client The client instance to make requests from.
+     * @param params A key-value pair of options. See Document.findParallel()
+     *               for the available options.
+     */
+    DocumentShardFinder(BoxViewClient client, Map<String, Object> params) {
+        this.client = client;
+
+        parallelism = getPositive(params, "parallelism", DEFAULT_PARALLELISM);
+        pageSize    = getPositive(params, "limit", DEFAULT_PAGE_SIZE);
+        ordered     = !Boolean.FALSE.equals(params.get("ordered"));
+    }
+
+    /**
+     * Find every document in a time range.
+     *
+     * @param createdAfter The start of the range, which is inclusive.
+     * @param createdBefore The end of the range, which is exclusive.
+     *
+     * @return A future completed with the documents.
+     */
+    CompletableFuture<List<Document>> find(Date createdAfter,
+                                           Date createdBefore) {
+        long start = createdAfter.getTime();
+        long end   = createdBefore.getTime();
+        long width = Math.max(1, (end - start) / parallelism);
+
+        synchronized (this) {
+            for (long from = start; from < end; from += width) {
+                pending.add(new Shard(from, Math.min(end, from + width)));
+            }
+        }
+
+        dispatch();
+        return result;
+    }
+
+    /**
+     * Request pending shards, up to the parallelism, and complete the result
+     * once every shard is done.
+     *
+     * @return void
+     */
+    private void dispatch() {
+        List<Shard> started = new ArrayList<Shard>();
+        boolean done;
+
+        synchronized (this) {
+            while (!pending.isEmpty() && inFlight < parallelism) {
+                started.add(pending.poll());
+                inFlight++;
+            }
+
+            done = (pending.isEmpty() && inFlight == 0);
+        }
+
+        if (done) {
+            complete();
+        }
+
+        for (Shard shard : started) {
+            fetch(shard).whenComplete((page, e) -> {
+                if (e != null) {
+                    result.completeExceptionally(e);
+                    return;
+                }
+
+                accept(shard, page);
+                dispatch();
+            });
+        }
+    }
+
+    /**
+     * Take in the page of a shard, keep the documents it has every one of,
+     * and split the rest of the shard if the page was full.
+     *
+     * @param shard The shard that was requested.
+     * @param page The documents on the page.
+     *
+     * @return void
+     */
+    private void accept(Shard shard, List<Document> page) {
+        List<Document> found = new ArrayList<Document>(page.size());
+        long oldest          = Long.MAX_VALUE;
+
+        for (Document document : page) {
+            Date createdAt = document.getCreatedAt();
+
+            // the API's bounds are treated as loose, and tightened here
+            if (createdAt == null
+                    || createdAt.getTime() < shard.start
+                    || createdAt.getTime() >= shard.end) {
+                continue;
+            }
+
+            found.add(document);
+            oldest = Math.min(oldest, createdAt.getTime());
+        }
+
+        boolean dense = (page.size() >= pageSize
+                         && !found.isEmpty()
+                         && shard.end - shard.start > 1);
+
+        synchronized (this) {
+            inFlight--;
+
+            if (dense) {
+                for (Document document : found) {
+                    if (document.getCreatedAt().getTime() > oldest) {
+                        documents.add(document);
+                    }
+                }
+
+                long end = Math.min(shard.end, oldest + 1);
+                long mid = shard.start + (end - shard.start) / 2;
+
+                // the halves go ahead of the shards still pending, so a dense
+                // range is narrowed down before the rest are started
+                if (mid > shard.start) pending.addFirst(new Shard(shard.start,
+                                                                  mid));
+                pending.addFirst(new Shard(mid, end));
+            } else {
+                documents.addAll(found);
+            }
+        }
+    }
+
+    /**
+     * Complete the result with every document found.
+     *
+     * @return void
+     */
+    private void complete() {
+        List<Document> found;
+
+        synchronized (this) {
+            found = new ArrayList<Document>(documents);
+        }
+
+        if (ordered) {
+            Collections.sort(found, NEWEST_FIRST);
+        }
+
+        result.complete(found);
+    }
+
+    /**
+     * Request a shard.
+     *
+     * @param shard The shard to request.
+     *
+     * @return The future documents in the shard.
+     */
+    private CompletableFuture<List<Document>> fetch(Shard shard) {
+        if (result.isDone()) {
+            return result;
+        }
+
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("limit", pageSize);
+        params.put("createdAfter", new Date(shard.start - 1));
+        params.put("createdBefore", new Date(shard.end));
+
+        try {
+            return Document.findAsync(client, params);
+        } catch (ParseException e) {
+            CompletableFuture<List<Document>> failed =
+                                    new CompletableFuture<List<Document>>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * Get a positive integer option.
+     *
+     * @param params A key-value pair of options.
+     * @param name The name of the option.
+     * @param defaultValue The value to use if the option isn't set.
+     *
+     * @return The value of the option.
+     */
+    private static int getPositive(Map<String, Object> params,
+                                   String name,
+                                   Integer defaultValue) {
+        return (params.containsKey(name) && ((Integer) params.get(name)) > 0)
+               ? (Integer) params.get(name)
+               : defaultValue;
+    }
+}
@@ -0,0 +1,244 @@
+package com.box.view;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+/**
+ * Finds the documents created since the last sync. The newest created_at
+ * seen so far is kept in a small watermark file, along with the IDs of the
+ * documents created at that exact time, so the next sync only lists documents
+ * created after it.
+ *
+ * The watermark is only moved once every new document has been passed to
+ * the callback, by writing a temporary file and renaming it over the old one,
+ * so a sync that fails part way through is simply repeated in full the next
+ * time. The callback may see a document more than once. It can miss
+ * documents only when more than a page of them were created in the same
+ * millisecond, since the API has no way to page through those, and
+ * DocumentPager skips the rest of that millisecond.
+ */
+public class DocumentSync {
+    /**
+     * Sync error codes.
+     */
+    public static final String WATERMARK_ERROR = "watermark_error";
+
+    /**
+     * The contents of the watermark file.
+     */
+    private static final class Watermark {
+        /**
+         * The newest created_at seen, formatted as RFC 3339.
+         */
+        private String createdAt;
+
+        /**
+         * The IDs of the documents created at that time.
+         */
+        private List<String> ids;
+    }
+
+    /**
+     * A Gson instance to reuse.
+     */
+    private static Gson GSON = new Gson();
+
+    /**
+     * The client instance to make requests from.
+     */
+    private final BoxViewClient client;
+
+    /**
+     * The file the watermark is kept in.
+     */
+    private final Path watermarkFile;
+
+    /**
+     * Set up the sync.
+     *
+     * @param client The client instance to make requests from.
+     * @param watermarkFile The file to keep the watermark in. If it doesn't
+     *                      exist yet, the first sync finds every document.
+     */
+    public DocumentSync(BoxViewClient client, File watermarkFile) {
+        this.client        = client;
+        this.watermarkFile = watermarkFile.toPath();
+    }
+
+    /**
+     * Get the newest created_at seen by the last sync.
+     *
+     * @return The date, or null if there hasn't been a sync yet.
+     * @throws BoxViewException
+     */
+    public Date getWatermark() throws BoxViewException {
+        Watermark watermark = read();
+        return (watermark != null) ? Base.parseDate(watermark.createdAt) : null;
+    }
+
+    /**
+     * Find the documents created since the last sync, newest first, and move
+     * the watermark once all of them have been passed to the callback.
+     *
+     * @param callback Called with every new document. If it throws, the sync
+     *                 stops and the watermark isn't moved.
+     *
+     * @return The number of new documents.
+     * @throws BoxViewException
+     */
+    public synchronized int sync(Consumer<Document> callback)
+                        throws BoxViewException {
+        Watermark watermark = read();
+        Date since          = null;
+        Set<String> seenIds = new HashSet<String>();
+
+        if (watermark != null) {
+            since = Base.parseDate(watermark.createdAt);
+            seenIds.addAll(watermark.ids);
+        }
+
+        Map<String, Object> params = new HashMap<String, Object>();
+
+        // the documents at the watermark are listed again, and skipped by ID
+        if (since != null) {
+            params.put("createdAfter", new Date(since.getTime() - 1));
+        }
+
+        Date newest         = since;
+        Set<String> newIds  = new HashSet<String>(seenIds);
+        int count           = 0;
+
+        try {
+            for (Document document : Document.findAll(client, params)) {
+                Date createdAt = document.getCreatedAt();
+
+                if (createdAt == null
+                        || (since != null && createdAt.before(since))
+                        || (createdAt.equals(since)
+                            && seenIds.contains(document.getId()))) {
+                    continue;
+                }
+
+                callback.accept(document);
+                count++;
+
+                if (newest == null || createdAt.after(newest)) {
+                    newest = createdAt;
+                    newIds = new HashSet<String>();
+                }
+
+                if (createdAt.equals(newest)) {
+                    newIds.add(document.getId());
+                }
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof BoxViewException) {
+                throw (BoxViewException) e.getCause();
+            }
+
+            throw e;
+        }
+
+        if (count > 0) {
+            Watermark updated = new Watermark();
+            updated.createdAt = Base.date(newest);
+            updated.ids       = new ArrayList<String>(newIds);
+            write(updated);
+        }
+
+        return count;
+    }
+
+    /**
+     * Read the watermark file.
+     *
+     * @return The watermark, or null if there is no watermark file.
+     * @throws BoxViewException
+     */
+    private Watermark read() throws BoxViewException {
+        if (!Files.exists(watermarkFile)) {
+            return null;
+        }
+
+        Watermark watermark = null;
+
+        try {
+            String json = new String(Files.readAllBytes(watermarkFile),
+                                     StandardCharsets.UTF_8);
+            watermark   = GSON.fromJson(json, Watermark.class);
+        } catch (IOException e) {
+            throw new BoxViewException(e.getMessage(), WATERMARK_ERROR);
+        } catch (JsonSyntaxException e) {
+            throw new BoxViewException(e.getMessage(), WATERMARK_ERROR);
+        }
+
+        if (watermark == null
+                || watermark.createdAt == null
+                || watermark.ids == null
+                || Base.parseDate(watermark.createdAt) == null) {
+            String message = "The watermark file " + watermarkFile
+                             + " is not in a valid format.";
+            throw new BoxViewException(message, WATERMARK_ERROR);
+        }
+
+        return watermark;
+    }
+
+    /**
+     * Replace the watermark file atomically, so that it's never left half
+     * written.
+     *
+     * @param watermark The new watermark.
+     *
+     * @return void
+     * @throws BoxViewException
+     */
+    private void write(Watermark watermark) throws BoxViewException {
+        Path directory = watermarkFile.toAbsolutePath().getParent();
+
+        try {
+            Path temp = Files.createTempFile(directory,
+                                             watermarkFile.getFileName()
+                                                          .toString(),
+                                             ".tmp");
+
+            try {
+                Files.write(temp,
+                            GSON.toJson(watermark)
+                                .getBytes(StandardCharsets.UTF_8));
+
+                try {
+                    Files.move(temp,
+                               watermarkFile,
+                               StandardCopyOption.ATOMIC_MOVE,
+                               StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp,
+                               watermarkFile,
+                               StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new BoxViewException(e.getMessage(), WATERMARK_ERROR);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.box.view;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Map;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * A request body of POST params, encoded as JSON in UTF-8. The params are
+ * written with a JsonWriter straight into bytes, instead of being turned into
+ * a string first, and are encoded only once however often the body is sent.
+ * The entity is repeatable, so a request can be retried with it, and its
+ * length is known before it's sent. As with Gson's defaults, params with a
+ * null value are left out.
+ */
+class JsonEntity extends AbstractHttpEntity {
+    /**
+     * A Gson instance to write values the entity doesn't know about.
+     */
+    private static final Gson GSON = new Gson();
+
+    /**
+     * The POST params.
+     */
+    private final Map<String, Object> params;
+
+    /**
+     * The encoded params, or null if they haven't been encoded yet.
+     */
+    private volatile byte[] body;
+
+    /**
+     * Create a request body.
+     *
+     * @param params A key-value pair of POST params.
+     */
+    JsonEntity(Map<String, Object> params) {
+        this.params = params;
+        setContentType(ContentType.APPLICATION_JSON.toString());
+    }
+
+    /**
+     * Can the body be sent more than once?
+     *
+     * @return Always true.
+     */
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    /**
+     * Is the body read from a stream?
+     *
+     * @return Always false.
+     */
+    public boolean isStreaming() {
+        return false;
+    }
+
+    /**
+     * Get the length of the body in bytes.
+     *
+     * @return The number of bytes.
+     */
+    public long getContentLength() {
+        try {
+            return getBody().length;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Get the body as a stream.
+     *
+     * @return A stream of the body.
+     * @throws IOException
+     */
+    public InputStream getContent() throws IOException {
+        return new ByteArrayInputStream(getBody());
+    }
+
+    /**
+     * Write the body to a stream.
+     *
+     * @param out The stream to write to.
+     *
+     * @return void
+     * @throws IOException
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(getBody());
+    }
+
+    /**
+     * Get the encoded params, encoding them the first time.
+     *
+     * @return The body.
+     * @throws IOException
+     */
+    private byte[] getBody() throws IOException {
+        byte[] encoded = body;
+
+        if (encoded == null) {
+            encoded = encode();
+            body    = encoded;
+        }
+
+        return encoded;
+    }
+
+    /**
+     * Encode the params. A new writer is used each time, so that one left
+     * holding characters by a failed encoding can't leak them into the next
+     * body.
+     *
+     * @return The encoded params.
+     * @throws IOException
+     */
+    private byte[] encode() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+        JsonWriter writer            = new JsonWriter(
+            new OutputStreamWriter(buffer, StandardCharsets.UTF_8));
+
+        writer.setSerializeNulls(false);
+        writeValue(writer, params);
+        writer.close();
+
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Write a single value. Strings, numbers, booleans, dates, and key-value
+     * pairs are written directly, and anything else is left to Gson. A null
+     * value in a key-value pair is skipped along with its key.
+     *
+     * @param writer The JSON writer.
+     * @param value The value to write.
+     *
+     * @return void
+     * @throws IOException
+     */
+    private static void writeValue(JsonWriter writer, Object value)
+                        throws IOException {
+        if (value == null) {
+            writer.nullValue();
+        } else if (value instanceof String) {
+            writer.value((String) value);
+        } else if (value instanceof Boolean) {
+            writer.value((Boolean) value);
+        } else if (value instanceof Number) {
+            writer.value((Number) value);
+        } else if (value instanceof Date) {
+            writer.value(Base.date((Date) value));
+        } else if (value instanceof Map<?, ?>) {
+            writer.beginObject();
+
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                writer.name(String.valueOf(entry.getKey()));
+                writeValue(writer, entry.getValue());
+            }
+
+            writer.endObject();
+        } else {
+            GSON.toJson(value, value.getClass(), writer);
+        }
+    }
+}
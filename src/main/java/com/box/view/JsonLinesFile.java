@@ -0,0 +1,170 @@
+package com.box.view;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+/**
+ * An append-only file of JSON objects, one per line, that survives crashes.
+ * Every line is flushed as soon as it's appended, and a line left half
+ * written by a crash is skipped when the file is read and ended before the
+ * next line is appended.
+ */
+class JsonLinesFile implements Closeable {
+    /**
+     * A Gson instance to reuse.
+     */
+    private static final Gson GSON = new Gson();
+
+    /**
+     * The file.
+     */
+    private final Path path;
+
+    /**
+     * Appends to the file, or null until the first line is appended.
+     */
+    private BufferedWriter writer;
+
+    /**
+     * Set up the file. It isn't created until a line is appended.
+     *
+     * @param path The file.
+     */
+    JsonLinesFile(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Get the file.
+     *
+     * @return The file.
+     */
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Read every complete line of the file, in order.
+     *
+     * @param type The class of the objects in the file.
+     * @param consumer Receives each object.
+     *
+     * @return void
+     * @throws IOException
+     */
+    <T> void read(Class<T> type, Consumer<T> consumer) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        // a line cut off inside a character is decoded with a replacement
+        // character, so it's skipped like any other half written line
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+        decoder.onMalformedInput(CodingErrorAction.REPLACE);
+        decoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        try (BufferedReader reader = new BufferedReader(
+                                         new InputStreamReader(
+                                             Files.newInputStream(path),
+                                             decoder))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                T value;
+
+                try {
+                    value = GSON.fromJson(line, type);
+                } catch (JsonSyntaxException e) {
+                    // half written during a crash
+                    continue;
+                }
+
+                if (value != null) {
+                    consumer.accept(value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Append an object to the file as a line, and flush it.
+     *
+     * @param value The object.
+     *
+     * @return void
+     * @throws IOException
+     */
+    synchronized void append(Object value) throws IOException {
+        if (writer == null) {
+            boolean terminated = isTerminated();
+            writer             = Files.newBufferedWriter(
+                                     path,
+                                     StandardCharsets.UTF_8,
+                                     StandardOpenOption.CREATE,
+                                     StandardOpenOption.APPEND);
+
+            // end a line left half written by a crash
+            if (!terminated) {
+                writer.newLine();
+            }
+        }
+
+        writer.write(GSON.toJson(value));
+        writer.newLine();
+        writer.flush();
+    }
+
+    /**
+     * Close the file. A later append opens it again.
+     *
+     * @return void
+     * @throws IOException
+     */
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    /**
+     * Does the file end with a complete line?
+     *
+     * @return Is it missing or empty, or does it end with a line break?
+     * @throws IOException
+     */
+    private boolean isTerminated() throws IOException {
+        if (!Files.exists(path)) {
+            return true;
+        }
+
+        try (FileChannel channel = FileChannel.open(path,
+                                                    StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            if (size == 0) {
+                return true;
+            }
+
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, size - 1);
+
+            return last.get(0) == '\n';
+        }
+    }
+}
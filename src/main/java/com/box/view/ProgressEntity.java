@@ -0,0 +1,145 @@
+package com.box.view;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+/**
+ * An entity that reports how many of its bytes have been written or read to
+ * a transfer listener. Every write or read of the entity is a new transfer,
+ * so each attempt of a retried upload is reported on its own. A transfer
+ * that fails is reported as done, with the bytes moved until then.
+ */
+class ProgressEntity extends HttpEntityWrapper {
+    /**
+     * Receives the progress.
+     */
+    private final TransferListener listener;
+
+    /**
+     * The URI of the request.
+     */
+    private final URI uri;
+
+    /**
+     * Is this the body of a request, rather than of a response?
+     */
+    private final boolean upload;
+
+    /**
+     * Wrap an entity.
+     *
+     * @param entity The entity.
+     * @param listener Receives the progress.
+     * @param uri The URI of the request.
+     * @param upload Is this the body of a request, rather than of a response?
+     */
+    ProgressEntity(HttpEntity entity,
+                   TransferListener listener,
+                   URI uri,
+                   boolean upload) {
+        super(entity);
+        this.listener = listener;
+        this.uri      = uri;
+        this.upload   = upload;
+    }
+
+    /**
+     * Get a stream of the entity's content that reports how much of it has
+     * been read.
+     *
+     * @return The content.
+     * @throws IOException
+     */
+    public InputStream getContent() throws IOException {
+        TransferProgress progress = start();
+        InputStream content       = super.getContent();
+
+        return new FilterInputStream(content) {
+            public int read() throws IOException {
+                int b = super.read();
+
+                if (b < 0) {
+                    progress.finish();
+                } else {
+                    progress.add(1);
+                }
+
+                return b;
+            }
+
+            public int read(byte[] b, int off, int len) throws IOException {
+                int count = super.read(b, off, len);
+
+                if (count < 0) {
+                    progress.finish();
+                } else {
+                    progress.add(count);
+                }
+
+                return count;
+            }
+
+            public long skip(long n) throws IOException {
+                long count = super.skip(n);
+                progress.add(count);
+                return count;
+            }
+
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    progress.finish();
+                }
+            }
+        };
+    }
+
+    /**
+     * Write the entity's content, reporting how much of it has been written.
+     *
+     * @param out The stream to write to.
+     *
+     * @return void
+     * @throws IOException
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        TransferProgress progress = start();
+
+        try {
+            super.writeTo(new FilterOutputStream(out) {
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    progress.add(1);
+                }
+
+                public void write(byte[] b, int off, int len)
+                            throws IOException {
+                    out.write(b, off, len);
+                    progress.add(len);
+                }
+            });
+        } finally {
+            progress.finish();
+        }
+    }
+
+    /**
+     * Start a transfer of the entity.
+     *
+     * @return The progress of the transfer.
+     */
+    private TransferProgress start() {
+        return new TransferProgress(listener,
+                                    uri,
+                                    upload,
+                                    getContentLength());
+    }
+}
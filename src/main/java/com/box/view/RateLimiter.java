@@ -0,0 +1,135 @@
+package com.box.view;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket that limits how often requests are sent. The bucket holds up
+ * to a burst of tokens and refills at a steady rate; each request takes one
+ * token, and waits for one if the bucket is empty.
+ *
+ * The bucket is stored as the time the next token becomes free, which is
+ * updated with compare-and-set, so the limiter can be shared between any
+ * number of threads without locking.
+ */
+public class RateLimiter {
+    /**
+     * The number of nanoseconds it takes to refill one token.
+     */
+    private final long interval;
+
+    /**
+     * How far ahead of the refill rate a burst of requests can get, in
+     * nanoseconds.
+     */
+    private final long tolerance;
+
+    /**
+     * The time, from System.nanoTime(), that the bucket will be full again.
+     */
+    private final AtomicLong fullAt = new AtomicLong(System.nanoTime());
+
+    /**
+     * Instantiate the limiter.
+     *
+     * @param permitsPerSecond The number of requests allowed per second.
+     * @param burst The number of requests that can be sent at once after the
+     *              limiter has been idle.
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            String message = "permitsPerSecond must be positive and burst "
+                             + "must be at least 1.";
+            throw new IllegalArgumentException(message);
+        }
+
+        interval  = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        tolerance = interval * (burst - 1);
+    }
+
+    /**
+     * Take a token, waiting for one if the bucket is empty.
+     *
+     * @return void
+     * @throws InterruptedException
+     */
+    public void acquire() throws InterruptedException {
+        TimeUnit.NANOSECONDS.sleep(reserve(Long.MAX_VALUE));
+    }
+
+    /**
+     * Take a token if one is free within a timeout, waiting for it if needed.
+     * No token is taken if the wait would be longer than the timeout.
+     *
+     * @param timeout The maximum time to wait.
+     * @param unit The unit of the timeout.
+     *
+     * @return Was a token taken?
+     * @throws InterruptedException
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit)
+                   throws InterruptedException {
+        long wait = reserve(unit.toNanos(timeout));
+
+        if (wait < 0) {
+            return false;
+        }
+
+        TimeUnit.NANOSECONDS.sleep(wait);
+        return true;
+    }
+
+    /**
+     * Take a token without blocking the calling thread. The returned future
+     * completes on the scheduler once the token is free.
+     *
+     * @param scheduler The scheduler to complete the future on.
+     *
+     * @return A future completed when the token is free.
+     */
+    public CompletableFuture<Void> acquireAsync(
+                                        ScheduledExecutorService scheduler) {
+        CompletableFuture<Void> future = new CompletableFuture<Void>();
+        long wait                      = reserve(Long.MAX_VALUE);
+
+        if (wait == 0) {
+            future.complete(null);
+        } else {
+            scheduler.schedule(() -> future.complete(null),
+                               wait,
+                               TimeUnit.NANOSECONDS);
+        }
+
+        return future;
+    }
+
+    /**
+     * Reserve a token, and return how long to wait before using it. No token
+     * is reserved if the wait would be longer than the maximum.
+     *
+     * @param maxWait The maximum number of nanoseconds to wait.
+     *
+     * @return The number of nanoseconds to wait, or -1 if no token was
+     *         reserved.
+     */
+    long reserve(long maxWait) {
+        while (true) {
+            long now     = System.nanoTime();
+            long current = fullAt.get();
+
+            // an idle bucket doesn't fill past its burst
+            long next = (current - now > 0) ? current : now;
+            long wait = Math.max(0, next - tolerance - now);
+
+            if (wait > maxWait) {
+                return -1;
+            }
+
+            if (fullAt.compareAndSet(current, next + interval)) {
+                return wait;
+            }
+        }
+    }
+}
@@ -1,41 +1,68 @@
 package com.box.view;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.DateUtils;
 import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
 import org.apache.http.entity.mime.HttpMultipartMode;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.entity.mime.content.ContentBody;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.util.EntityUtils;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
 /**
- * Makes a request to the Box View API.
+ * Makes a request to the Box View API. Connections are pooled and kept alive
+ * for the lifetime of the instance, so it should be shared and closed when it
+ * is no longer needed.
  */
-public class Request {
+public class Request implements Closeable {
     /**
      * Request error codes.
      */
     public static final String BAD_REQUEST_ERROR        = "bad_request";
+    public static final String CIRCUIT_OPEN_ERROR       = "circuit_open";
     public static final String HTTP_CLIENT_ERROR        = "http_client_error";
     public static final String INVALID_HTTP_METHOD_ERROR
                                                         = "invalid_http_method";
@@ -46,6 +73,8 @@ public class Request {
     public static final String NO_LONGER_AVAILABLE_ERROR
                                                         = "no_longer_available";
     public static final String NOT_FOUND_ERROR          = "not_found";
+    public static final String REQUEST_INTERRUPTED_ERROR
+                                                        = "request_interrupted";
     public static final String REQUEST_TIMEOUT_ERROR    = "request_timeout";
     public static final String SERVER_ERROR             = "server_error";
     public static final String TOO_MANY_REQUESTS_ERROR  = "too_many_requests";
@@ -73,15 +102,129 @@ public class Request {
      */
     public static final Integer DEFAULT_RETRY_TIMEOUT = 60;
 
+    /**
+     * The default number of seconds to wait for a connection to be made.
+     */
+    public static final Integer DEFAULT_CONNECT_TIMEOUT = 10;
+
+    /**
+     * The default number of seconds to wait for data from the server.
+     */
+    public static final Integer DEFAULT_READ_TIMEOUT = 60;
+
+    /**
+     * The default maximum number of times a request is retried when the server
+     * responds with a Retry-After header.
+     */
+    public static final Integer DEFAULT_MAX_RETRY_ATTEMPTS = 10;
+
+    /**
+     * The default maximum number of pooled connections across all hosts.
+     */
+    public static final Integer DEFAULT_MAX_CONNECTIONS = 100;
+
+    /**
+     * The default maximum number of pooled connections to a single host.
+     */
+    public static final Integer DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 50;
+
+    /**
+     * The number of seconds an idle pooled connection is kept alive for.
+     */
+    public static final Integer IDLE_CONNECTION_TIMEOUT = 30;
+
+    /**
+     * The classes of endpoints that can be rate limited separately.
+     */
+    public static final String CONTENT_ENDPOINT  = "content";
+    public static final String METADATA_ENDPOINT = "metadata";
+    public static final String SESSION_ENDPOINT  = "sessions";
+    public static final String UPLOAD_ENDPOINT   = "uploads";
+
     /**
      * The API key.
      */
     private String apiKey;
 
     /**
-     * The timestamp of the last request.
+     * The connection pool shared by every request made through this instance.
+     */
+    private PoolingHttpClientConnectionManager connectionManager;
+
+    /**
+     * The HTTP client shared by every request made through this instance.
+     */
+    private CloseableHttpClient httpClient;
+
+    /**
+     * The executor that runs asynchronous requests.
+     */
+    private volatile ExecutorService executor;
+
+    /**
+     * Was the executor created by this instance, and so should be shut down
+     * when this instance is closed?
+     */
+    private volatile boolean ownsExecutor;
+
+    /**
+     * Schedules asynchronous requests that are waiting on a Retry-After
+     * header, so that waiting requests don't hold a thread.
+     */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * The maximum number of times a request is retried when the server
+     * responds with a Retry-After header.
+     */
+    private volatile Integer maxRetryAttempts = DEFAULT_MAX_RETRY_ATTEMPTS;
+
+    /**
+     * The rate limiters for each class of endpoint, shared by every request
+     * made through this instance.
+     */
+    private Map<String, RateLimiter> rateLimiters =
+                                   new ConcurrentHashMap<String, RateLimiter>();
+
+    /**
+     * The limiter of how many requests are in flight at once, or null for no
+     * limit besides the connection pool.
+     */
+    private volatile ConcurrencyLimiter concurrencyLimiter;
+
+    /**
+     * The policy for retrying transient errors, or null to never retry them.
+     */
+    private volatile RetryPolicy retryPolicy = new RetryPolicy();
+
+    /**
+     * The circuit breakers for each host, shared by every request made
+     * through this instance.
      */
-    private long timestampRequested;
+    private Map<String, CircuitBreaker> circuitBreakers =
+                                new ConcurrentHashMap<String, CircuitBreaker>();
+
+    /**
+     * Are concurrent identical GET requests coalesced into one?
+     */
+    private volatile boolean coalescing;
+
+    /**
+     * Are files uploaded through a FileChannel in large chunks?
+     */
+    private volatile boolean channelUploads;
+
+    /**
+     * Receives the progress of uploads and downloads, or null.
+     */
+    private volatile TransferListener transferListener;
+
+    /**
+     * The GET requests in flight that other identical requests can share,
+     * keyed by their Accept header and URI.
+     */
+    private Map<String, CompletableFuture<HttpResponse>> sharedRequests =
+        new ConcurrentHashMap<String, CompletableFuture<HttpResponse>>();
 
     /**
      * A Gson instance to reuse.
@@ -91,12 +234,420 @@ public class Request {
     private static Gson GSON = new Gson();
 
     /**
-     * Set the API key.
+     * Turns a successful HTTP response into a result.
+     */
+    private interface ResponseHandler<T> {
+        /**
+         * Handle a successful HTTP response.
+         *
+         * @param response The HTTP response object.
+         *
+         * @return The result of the request.
+         * @throws BoxViewException
+         */
+        T handle(HttpResponse response) throws BoxViewException;
+    }
+
+    /**
+     * The time budget of a single call, which is carried through every retry
+     * of the call, along with the number of its attempts that failed. Each
+     * call gets its own deadline, so calls made from different threads don't
+     * affect each other.
+     */
+    private static final class Deadline {
+        /**
+         * When the call started, from System.nanoTime().
+         */
+        private final long startedAt = System.nanoTime();
+
+        /**
+         * The maximum number of seconds the call can take, including retries,
+         * or 0 for no limit.
+         */
+        private final int timeout;
+
+        /**
+         * The maximum number of seconds to wait for a connection to be made.
+         */
+        private final int connectTimeout;
+
+        /**
+         * The maximum number of seconds to wait for data from the server.
+         */
+        private final int readTimeout;
+
+        /**
+         * The number of attempts that failed with a transient error. Attempts
+         * of a call never overlap, so this isn't shared between threads.
+         */
+        private int failures;
+
+        /**
+         * Start the deadline.
+         *
+         * @param timeout The maximum number of seconds the call can take,
+         *                including retries, or 0 for no limit.
+         * @param connectTimeout The maximum number of seconds to wait for a
+         *                       connection to be made.
+         * @param readTimeout The maximum number of seconds to wait for data
+         *                    from the server.
+         */
+        Deadline(int timeout, int connectTimeout, int readTimeout) {
+            this.timeout        = timeout;
+            this.connectTimeout = connectTimeout;
+            this.readTimeout    = readTimeout;
+        }
+
+        /**
+         * Count an attempt that failed with a transient error.
+         *
+         * @return The number of attempts that failed, including this one.
+         */
+        int recordFailure() {
+            return ++failures;
+        }
+
+        /**
+         * Get the number of attempts that failed with a transient error.
+         *
+         * @return The number of attempts that failed.
+         */
+        int getFailures() {
+            return failures;
+        }
+
+        /**
+         * Get the number of whole seconds since the call started.
+         *
+         * @return The number of seconds since the call started.
+         */
+        long getElapsedSeconds() {
+            long elapsed = System.nanoTime() - startedAt;
+            return TimeUnit.NANOSECONDS.toSeconds(elapsed);
+        }
+
+        /**
+         * Get the number of milliseconds left before the deadline.
+         *
+         * @return The number of milliseconds left, or Long.MAX_VALUE if there
+         *         is no limit.
+         */
+        long getRemainingMillis() {
+            if (timeout <= 0) {
+                return Long.MAX_VALUE;
+            }
+
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime()
+                                                         - startedAt);
+            return TimeUnit.SECONDS.toMillis(timeout) - elapsed;
+        }
+
+        /**
+         * Will waiting for a number of seconds go past the deadline?
+         *
+         * @param seconds The number of seconds to wait.
+         *
+         * @return Would the wait go past the deadline?
+         */
+        boolean isExceededBy(long seconds) {
+            return getRemainingMillis() < TimeUnit.SECONDS.toMillis(seconds);
+        }
+
+        /**
+         * Get the request config for the next attempt, where no single wait
+         * can go past the deadline.
+         *
+         * @return The request config.
+         */
+        RequestConfig getRequestConfig() {
+            long remaining = Math.max(1, getRemainingMillis());
+
+            return RequestConfig.custom()
+                   .setConnectTimeout(limit(connectTimeout, remaining))
+                   .setConnectionRequestTimeout(limit(readTimeout, remaining))
+                   .setSocketTimeout(limit(readTimeout, remaining))
+                   .build();
+        }
+
+        /**
+         * Limit a timeout to the time remaining.
+         *
+         * @param seconds The timeout in seconds.
+         * @param remaining The number of milliseconds remaining.
+         *
+         * @return The limited timeout in milliseconds.
+         */
+        private static int limit(int seconds, long remaining) {
+            return (int) Math.min(TimeUnit.SECONDS.toMillis(seconds),
+                                  remaining);
+        }
+    }
+
+    /**
+     * Set the API key, using the default connection pool limits.
      *
      * @param apiKey The API key.
      */
     public Request(String apiKey) {
+        this(apiKey,
+             DEFAULT_MAX_CONNECTIONS,
+             DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+    }
+
+    /**
+     * Set the API key and the connection pool limits.
+     *
+     * @param apiKey The API key.
+     * @param maxConnections The maximum number of pooled connections across
+     *                       all hosts.
+     * @param maxConnectionsPerRoute The maximum number of pooled connections
+     *                               to a single host.
+     */
+    public Request(String apiKey,
+                   Integer maxConnections,
+                   Integer maxConnectionsPerRoute) {
         this.apiKey = apiKey;
+
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+
+        httpClient   = createHttpClient(connectionManager);
+        executor     = createExecutor(maxConnections);
+        ownsExecutor = true;
+        scheduler    = createScheduler();
+    }
+
+    /**
+     * Close the pooled connections, and shut down the executor if it was
+     * created by this instance. Requests made after this will fail.
+     *
+     * @return void
+     */
+    public void close() {
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+        }
+
+        connectionManager.shutdown();
+
+        // retries that are already scheduled still run, and fail
+        scheduler.shutdown();
+
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Get the statistics of the connection pool across all hosts.
+     *
+     * @return The number of leased, pending, and available connections.
+     */
+    public PoolStats getPoolStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    /**
+     * Get the statistics of the connection pool for a single host.
+     *
+     * @param hostName The host, such as view-api.box.com or
+     *                 upload.view-api.box.com.
+     *
+     * @return The number of leased, pending, and available connections.
+     */
+    public PoolStats getPoolStats(String hostName) {
+        return connectionManager.getStats(getRoute(hostName));
+    }
+
+    /**
+     * Set the executor that runs asynchronous requests. An executor passed in
+     * here is not shut down when this instance is closed.
+     *
+     * @param executor The executor to run asynchronous requests on.
+     *
+     * @return void
+     */
+    public void setExecutor(ExecutorService executor) {
+        if (ownsExecutor) {
+            this.executor.shutdown();
+        }
+
+        this.executor     = executor;
+        this.ownsExecutor = false;
+    }
+
+    /**
+     * Get the policy for retrying transient errors.
+     *
+     * @return The retry policy, or null if transient errors aren't retried.
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Set the policy for retrying transient errors, such as connection
+     * failures and 5xx responses.
+     *
+     * @param retryPolicy The retry policy, or null to never retry them.
+     *
+     * @return void
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Set the maximum number of times a request is retried when the server
+     * responds with a Retry-After header.
+     *
+     * @param maxRetryAttempts The maximum number of retries.
+     *
+     * @return void
+     */
+    public void setMaxRetryAttempts(Integer maxRetryAttempts) {
+        this.maxRetryAttempts = maxRetryAttempts;
+    }
+
+    /**
+     * Set whether concurrent identical GET requests are coalesced. When they
+     * are, a GET request made while an identical one is in flight waits for
+     * that request's response instead of making its own. Downloads of
+     * document content are never coalesced, since their response would have
+     * to be held in memory.
+     *
+     * @param coalescing Should identical GET requests be coalesced?
+     *
+     * @return void
+     */
+    public void setCoalescing(boolean coalescing) {
+        this.coalescing = coalescing;
+    }
+
+    /**
+     * Set whether files are read through a FileChannel and written to the
+     * connection in large chunks, instead of being copied through a small
+     * stream buffer.
+     *
+     * @param channelUploads Should files be uploaded in large chunks?
+     *
+     * @return void
+     */
+    public void setChannelUploads(boolean channelUploads) {
+        this.channelUploads = channelUploads;
+    }
+
+    /**
+     * Set the listener that receives the progress of file uploads and of
+     * response bodies as they're read. Without one, transfers aren't
+     * tracked at all.
+     *
+     * @param transferListener The listener, or null to remove it.
+     *
+     * @return void
+     */
+    public void setTransferListener(TransferListener transferListener) {
+        this.transferListener = transferListener;
+    }
+
+    /**
+     * Get the limiter of how many requests are in flight at once.
+     *
+     * @return The concurrency limiter, or null if there is none.
+     */
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    /**
+     * Set the limiter of how many requests are in flight at once. Every
+     * attempt, including retries, holds a permit while it is being sent.
+     *
+     * @param concurrencyLimiter The concurrency limiter, or null to remove the
+     *                           limit.
+     *
+     * @return void
+     */
+    public void setConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    /**
+     * Get the circuit breaker for a host.
+     *
+     * @param hostName The host, such as view-api.box.com or
+     *                 upload.view-api.box.com.
+     *
+     * @return The circuit breaker, or null if there is none.
+     */
+    public CircuitBreaker getCircuitBreaker(String hostName) {
+        return circuitBreakers.get(hostName);
+    }
+
+    /**
+     * Set the circuit breaker for a host. While the breaker is open, requests
+     * to the host fail right away with CIRCUIT_OPEN_ERROR instead of being
+     * sent or retried.
+     *
+     * @param hostName The host, such as view-api.box.com or
+     *                 upload.view-api.box.com.
+     * @param circuitBreaker The circuit breaker, or null to remove it.
+     *
+     * @return void
+     */
+    public void setCircuitBreaker(String hostName,
+                                  CircuitBreaker circuitBreaker) {
+        if (circuitBreaker == null) {
+            circuitBreakers.remove(hostName);
+        } else {
+            circuitBreakers.put(hostName, circuitBreaker);
+        }
+    }
+
+    /**
+     * Set the rate limiter for a class of endpoints. Requests wait for the
+     * limiter before every attempt, including retries.
+     *
+     * @param endpoint The class of endpoints, which can be CONTENT_ENDPOINT,
+     *                 METADATA_ENDPOINT, SESSION_ENDPOINT, or
+     *                 UPLOAD_ENDPOINT.
+     * @param rateLimiter The rate limiter, or null to remove the limit.
+     *
+     * @return void
+     */
+    public void setRateLimiter(String endpoint, RateLimiter rateLimiter) {
+        if (rateLimiter == null) {
+            rateLimiters.remove(endpoint);
+        } else {
+            rateLimiters.put(endpoint, rateLimiter);
+        }
+    }
+
+    /**
+     * Set the maximum number of pooled connections across all hosts.
+     *
+     * @param maxConnections The maximum number of pooled connections.
+     *
+     * @return void
+     */
+    public void setMaxConnections(Integer maxConnections) {
+        connectionManager.setMaxTotal(maxConnections);
+    }
+
+    /**
+     * Set the maximum number of pooled connections to a single host.
+     *
+     * @param hostName The host, such as view-api.box.com or
+     *                 upload.view-api.box.com.
+     * @param maxConnections The maximum number of pooled connections.
+     *
+     * @return void
+     */
+    public void setMaxConnectionsPerRoute(String hostName,
+                                          Integer maxConnections) {
+        connectionManager.setMaxPerRoute(getRoute(hostName), maxConnections);
     }
 
     /**
@@ -120,10 +671,46 @@ public class Request {
                                                getParams,
                                                postParams,
                                                requestOptions);
-        Integer timeout        = createTimeout(requestOptions);
-        HttpResponse response  = execute(request, timeout);
+        Deadline deadline      = createDeadline(requestOptions);
+        HttpResponse response  = coalesce(request, deadline);
+
+        return track(response.getEntity(), request);
+    }
+
+    /**
+     * Send an HTTP request asynchronously and return a future HttpEntity.
+     *
+     * @param path The path to add after the base path.
+     * @param getParams A key-value pair of GET params to be added to the URL.
+     * @param postParams A key-value pair of POST params to be sent in the body.
+     * @param requestOptions A key-value pair of request options that may modify
+     *                       the way the request is made.
+     *
+     * @return A future completed with the HttpEntity from the response, or
+     *         exceptionally with a BoxViewException.
+     */
+    public CompletableFuture<HttpEntity> requestHttpEntityAsync(
+                                        String path,
+                                        Map<String, Object> getParams,
+                                        Map<String, Object> postParams,
+                                        Map<String, Object> requestOptions) {
+        HttpUriRequest request;
+
+        try {
+            request = createRequest(path,
+                                    getParams,
+                                    postParams,
+                                    requestOptions);
+        } catch (BoxViewException e) {
+            return failedFuture(e);
+        }
+
+        Deadline deadline = createDeadline(requestOptions);
 
-        return response.getEntity();
+        return coalesceAsync(request,
+                             deadline,
+                             response -> track(response.getEntity(),
+                                               request));
     }
 
     /**
@@ -147,209 +734,1008 @@ public class Request {
                                                getParams,
                                                postParams,
                                                requestOptions);
-        Integer timeout        = createTimeout(requestOptions);
-        HttpResponse response  = execute(request, timeout);
+        Deadline deadline      = createDeadline(requestOptions);
+        HttpResponse response  = coalesce(request, deadline);
+
+        return readJsonResponse(response, request);
+    }
+
+    /**
+     * Send an HTTP request asynchronously and return a future JSON object.
+     *
+     * @param path The path to add after the base path.
+     * @param getParams A key-value pair of GET params to be added to the URL.
+     * @param postParams A key-value pair of POST params to be sent in the body.
+     * @param requestOptions A key-value pair of request options that may modify
+     *                       the way the request is made.
+     *
+     * @return A future completed with a key-value pair decoded from JSON, or
+     *         exceptionally with a BoxViewException.
+     */
+    public CompletableFuture<Map<String, Object>> requestJsonAsync(
+                                        String path,
+                                        Map<String, Object> getParams,
+                                        Map<String, Object> postParams,
+                                        Map<String, Object> requestOptions) {
+        HttpUriRequest request;
+
+        try {
+            request = createRequest(path,
+                                    getParams,
+                                    postParams,
+                                    requestOptions);
+        } catch (BoxViewException e) {
+            return failedFuture(e);
+        }
+
+        Deadline deadline = createDeadline(requestOptions);
+
+        return coalesceAsync(request,
+                             deadline,
+                             response -> readJsonResponse(response, request));
+    }
+
+    /**
+     * Handle an error. We handle errors by throwing an exception.
+     *
+     * @param error An error code representing the error
+     *                     (use_underscore_separators).
+     * @param message The error message.
+     * @param request The HTTP request object.
+     * @param response The HTTP response object.
+     *
+     * @return void
+     * @throws BoxViewException
+     */
+    protected static void error(String error,
+                                String message,
+                                HttpUriRequest request,
+                                String responseBody)
+              throws BoxViewException {
+        if (request != null) {
+            URI uri = request.getURI();
+
+            message += "\n";
+            message += "Method: " + request.getMethod() + "\n";
+            message += "URL: " + uri.toString() + "\n";
+            message += "Query: " + uri.getQuery() + "\n";
+
+            Header[] headers = request.getAllHeaders();
+            message         += "Headers: " + GSON.toJson(headers) + "\n";
+
+            String requestBody = "";
+
+            if (request.getMethod().equals("POST")) {
+                HttpEntity entity = ((HttpPost) request).getEntity();
+
+                try {
+                    requestBody = EntityUtils.toString(entity);
+                } catch (IOException e) {
+                } catch (UnsupportedOperationException e) {
+                }
+            }
+
+            message += "Request Body: " + requestBody + "\n";
+        }
+
+        if (responseBody != null) {
+            message += "\n";
+            message += "Response Body: " + responseBody + "\n";
+        }
+
+        throw new BoxViewException(message, error);
+    }
+
+    /**
+     * Track the progress of reading a response body, if there is a transfer
+     * listener.
+     *
+     * @param entity The response body, or null.
+     * @param request The HTTP request object.
+     *
+     * @return The response body, reporting its progress as it's read.
+     */
+    private HttpEntity track(HttpEntity entity, HttpUriRequest request) {
+        TransferListener listener = transferListener;
+
+        if (listener == null || entity == null) {
+            return entity;
+        }
+
+        return new ProgressEntity(entity, listener, request.getURI(), false);
+    }
+
+    /**
+     * Prepare and create an HTTP request object.
+     *
+     * @param path The path to add after the base path.
+     * @param getParams A key-value pair of GET params to be added to the URL.
+     * @param postParams A key-value pair of POST params to be sent in the body.
+     * @param requestOptions A key-value pair of request options that may modify
+     *                       the way the request is made.
+     *
+     * @return The HTTP request object.
+     * @throws BoxViewException
+     */
+    private HttpUriRequest createRequest(String path,
+                                         Map<String, Object> getParams,
+                                         Map<String, Object> postParams,
+                                         Map<String, Object> requestOptions)
+            throws BoxViewException {
+        if (getParams == null)  getParams  = new HashMap<String, Object>();
+        if (postParams == null) postParams = new HashMap<String, Object>();
+
+        if (requestOptions == null) {
+            requestOptions = new HashMap<String, Object>();
+        }
+
+        HttpEntity requestEntity = null;
+
+        String method = "GET";
+
+        if (requestOptions.containsKey("file")
+                && requestOptions.get("file") != null) {
+            method                                 = "POST";
+            MultipartEntityBuilder mpEntityBuilder = MultipartEntityBuilder
+                                                     .create();
+            mpEntityBuilder.setMode(HttpMultipartMode.BROWSER_COMPATIBLE);
+
+            Object file = requestOptions.get("file");
+
+            if (file instanceof ContentBody) {
+                mpEntityBuilder.addPart("file", (ContentBody) file);
+            } else if (channelUploads) {
+                ContentBody body = new FileChannelBody((File) file);
+                mpEntityBuilder.addPart("file", body);
+            } else {
+                mpEntityBuilder.addBinaryBody("file", (File) file);
+            }
+
+            for (Map.Entry<String, Object> param : postParams.entrySet()) {
+                String value = param.getValue().toString();
+                mpEntityBuilder.addTextBody(param.getKey(), value);
+            }
+
+            requestEntity = mpEntityBuilder.build();
+
+            // a stream can only be sent once, so the request can't be retried
+            if (file instanceof StreamBody) {
+                requestEntity = new HttpEntityWrapper(requestEntity) {
+                    public boolean isRepeatable() {
+                        return false;
+                    }
+                };
+            }
+        } else if (!postParams.isEmpty()) {
+            method        = "POST";
+            requestEntity = new JsonEntity(postParams);
+        }
+
+        if (requestOptions.containsKey("httpMethod")
+                && requestOptions.get("httpMethod") != null) {
+            method = requestOptions.get("httpMethod").toString();
+        }
+
+        String hostName = HOST;
+
+        if (requestOptions.containsKey("host")
+                && requestOptions.get("host") != null) {
+            hostName = requestOptions.get("host").toString();
+        }
+
+        URI uri                   = getUri(hostName, path, getParams);
+        TransferListener listener = transferListener;
+
+        // only file uploads are tracked, not small JSON bodies
+        if (listener != null && requestOptions.get("file") != null) {
+            requestEntity = new ProgressEntity(requestEntity,
+                                               listener,
+                                               uri,
+                                               true);
+        }
+
+        return getRequest(method, uri, requestEntity, requestOptions);
+    }
+
+    /**
+     * Start the deadline for a call.
+     *
+     * @param requestOptions A key-value pair of request options that may modify
+     *                       the way the request is made. Use the following
+     *                       options:
+     *                         - int|null 'timeout' The maximum number of
+     *                           seconds to retry for.
+     *                         - int|null 'connectTimeout' The maximum number
+     *                           of seconds to wait for a connection.
+     *                         - int|null 'readTimeout' The maximum number of
+     *                           seconds to wait for data from the server.
+     *
+     * @return The deadline of the call.
+     */
+    private static Deadline createDeadline(Map<String, Object> requestOptions) {
+        return new Deadline(
+                   getTimeoutOption(requestOptions,
+                                    "timeout",
+                                    DEFAULT_RETRY_TIMEOUT),
+                   getTimeoutOption(requestOptions,
+                                    "connectTimeout",
+                                    DEFAULT_CONNECT_TIMEOUT),
+                   getTimeoutOption(requestOptions,
+                                    "readTimeout",
+                                    DEFAULT_READ_TIMEOUT));
+    }
+
+    /**
+     * Get a timeout from the request options.
+     *
+     * @param requestOptions A key-value pair of request options that may modify
+     *                       the way the request is made.
+     * @param name The name of the timeout option.
+     * @param defaultTimeout The timeout to use if the option isn't set.
+     *
+     * @return The timeout in seconds.
+     */
+    private static Integer getTimeoutOption(Map<String, Object> requestOptions,
+                                            String name,
+                                            Integer defaultTimeout) {
+        return (requestOptions != null
+                && requestOptions.containsKey(name)
+                && ((Integer) requestOptions.get(name)) > 0)
+                   ? (Integer) requestOptions.get(name)
+                   : defaultTimeout;
+    }
+
+    /**
+     * Execute a request to the server and return the response, sharing the
+     * response of an identical GET request that is already in flight if
+     * coalescing is on.
+     *
+     * @param request The HTTP request object to send.
+     * @param deadline The time budget of the call.
+     *
+     * @return The HttpResponse response object.
+     * @throws BoxViewException
+     */
+    private HttpResponse coalesce(HttpUriRequest request, Deadline deadline)
+            throws BoxViewException {
+        String key = getCoalescingKey(request);
+
+        if (key == null) {
+            return execute(request, deadline);
+        }
+
+        CompletableFuture<HttpResponse> shared =
+                                        new CompletableFuture<HttpResponse>();
+        CompletableFuture<HttpResponse> inFlight =
+                                        sharedRequests.putIfAbsent(key, shared);
+
+        if (inFlight != null) {
+            return await(inFlight, request, deadline);
+        }
+
+        try {
+            HttpResponse response = execute(request, deadline);
+            buffer(response, request);
+            shared.complete(response);
+            return response;
+        } catch (BoxViewException e) {
+            shared.completeExceptionally(e);
+            throw e;
+        } finally {
+            sharedRequests.remove(key, shared);
+        }
+    }
+
+    /**
+     * Execute a request to the server asynchronously, sharing the response of
+     * an identical GET request that is already in flight if coalescing is on.
+     * Cancelling the returned future of a shared request doesn't abort it for
+     * the other callers.
+     *
+     * @param request The HTTP request object to send.
+     * @param deadline The time budget of the call.
+     * @param handler Turns the successful HTTP response into a result.
+     *
+     * @return A future completed with the result of the handler.
+     */
+    private <T> CompletableFuture<T> coalesceAsync(
+                                            HttpUriRequest request,
+                                            Deadline deadline,
+                                            ResponseHandler<T> handler) {
+        String key = getCoalescingKey(request);
+
+        if (key == null) {
+            return executeAsync(request, deadline, handler);
+        }
+
+        CompletableFuture<HttpResponse> shared =
+                                        new CompletableFuture<HttpResponse>();
+        CompletableFuture<HttpResponse> inFlight =
+                                        sharedRequests.putIfAbsent(key, shared);
+
+        if (inFlight == null) {
+            inFlight = shared;
+
+            ResponseHandler<HttpResponse> buffered = response -> {
+                buffer(response, request);
+                return response;
+            };
+
+            executeAsync(request, deadline, buffered)
+                .whenComplete((response, e) -> {
+                    sharedRequests.remove(key, shared);
+
+                    if (e == null) {
+                        shared.complete(response);
+                    } else {
+                        shared.completeExceptionally(e);
+                    }
+                });
+        }
+
+        return inFlight.thenCompose(response -> {
+            CompletableFuture<T> result = new CompletableFuture<T>();
+
+            try {
+                result.complete(handler.handle(response));
+            } catch (BoxViewException e) {
+                result.completeExceptionally(e);
+            }
+
+            return result;
+        });
+    }
+
+    /**
+     * Wait up to the deadline for the response of an identical request that
+     * is in flight.
+     *
+     * @param inFlight The future response of the identical request.
+     * @param request The HTTP request object that is waiting.
+     * @param deadline The time budget of the call.
+     *
+     * @return The HttpResponse response object.
+     * @throws BoxViewException
+     */
+    private static HttpResponse await(CompletableFuture<HttpResponse> inFlight,
+                                      HttpUriRequest request,
+                                      Deadline deadline)
+                   throws BoxViewException {
+        try {
+            return inFlight.get(deadline.getRemainingMillis(),
+                                TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BoxViewException) {
+                throw (BoxViewException) e.getCause();
+            }
+
+            error(HTTP_CLIENT_ERROR, e.getCause().getMessage(), request, null);
+        } catch (TimeoutException e) {
+            String message = "The request timed out waiting for an identical "
+                             + "request.";
+            error(REQUEST_TIMEOUT_ERROR, message, request, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            String message = "The request was interrupted while waiting for an "
+                             + "identical request.";
+            error(REQUEST_INTERRUPTED_ERROR, message, request, null);
+        }
+
+        return null;
+    }
+
+    /**
+     * Read the body of a shared response into memory, so that every caller
+     * sharing it can read it.
+     *
+     * @param response The HTTP response object.
+     * @param request The HTTP request object.
+     *
+     * @return void
+     * @throws BoxViewException
+     */
+    private static void buffer(HttpResponse response, HttpUriRequest request)
+                   throws BoxViewException {
+        HttpEntity entity = response.getEntity();
+
+        if (entity == null || entity.isRepeatable()) {
+            return;
+        }
+
+        try {
+            response.setEntity(new BufferedHttpEntity(entity));
+        } catch (IOException e) {
+            error(HTTP_CLIENT_ERROR, e.getMessage(), request, null);
+        }
+    }
+
+    /**
+     * Execute a request to the server and return the response, while retrying
+     * based on any Retry-After headers that are sent back, and retrying
+     * transient errors based on the retry policy.
+     *
+     * @param request The HTTP request object to send, and possibly retry.
+     * @param deadline The time budget of the call.
+     *
+     * @return The HttpResponse response object.
+     * @throws BoxViewException
+     */
+    private HttpResponse execute(HttpUriRequest request, Deadline deadline)
+            throws BoxViewException {
+        for (int attempt = 1; ; attempt++) {
+            checkCircuit(request);
+            pause(request, reservePermit(request, deadline));
+
+            ConcurrencyLimiter limiter = acquireConcurrency(request, deadline);
+            HttpResponse response;
+
+            try {
+                response = send(request, deadline, limiter);
+            } catch (IOException e) {
+                pause(request, getBackoff(request, null, e, deadline));
+                continue;
+            }
+
+            Integer retryAfter = getRetryAfter(request,
+                                               response,
+                                               deadline,
+                                               attempt);
+
+            if (retryAfter != null) {
+                pause(request, TimeUnit.SECONDS.toNanos(retryAfter));
+            } else if (isTransient(response)) {
+                pause(request, getBackoff(request, response, null, deadline));
+            } else {
+                handleRequestError(request, response, null);
+                recordSuccess(deadline);
+                return response;
+            }
+        }
+    }
+
+    /**
+     * Execute a request to the server asynchronously, while retrying based on
+     * any Retry-After headers that are sent back, and retrying transient
+     * errors based on the retry policy. Requests waiting to be retried are
+     * scheduled, and don't hold a thread. Cancelling the returned
+     * future aborts the request and any scheduled retry.
+     *
+     * @param request The HTTP request object to send, and possibly retry.
+     * @param deadline The time budget of the call.
+     * @param handler Turns the successful HTTP response into a result.
+     *
+     * @return A future completed with the result of the handler.
+     */
+    private <T> CompletableFuture<T> executeAsync(
+                                            HttpUriRequest request,
+                                            Deadline deadline,
+                                            ResponseHandler<T> handler) {
+        CompletableFuture<T> future = new CompletableFuture<T>();
+
+        future.whenComplete((result, e) -> {
+            if (future.isCancelled()) {
+                request.abort();
+            }
+        });
+
+        attemptAsync(request, deadline, handler, 1, future);
+        return future;
+    }
+
+    /**
+     * Make a single attempt at an asynchronous request on the executor, and
+     * schedule the next attempt if the server asks us to retry. Waiting for
+     * the rate limiter is scheduled too, and the attempt fails right away if
+     * the host's circuit breaker is open.
+     *
+     * @param request The HTTP request object to send, and possibly retry.
+     * @param deadline The time budget of the call.
+     * @param handler Turns the successful HTTP response into a result.
+     * @param attempt The number of this attempt, starting at 1.
+     * @param future The future to complete with the result of the handler.
+     *
+     * @return void
+     */
+    private <T> void attemptAsync(HttpUriRequest request,
+                                  Deadline deadline,
+                                  ResponseHandler<T> handler,
+                                  int attempt,
+                                  CompletableFuture<T> future) {
+        ConcurrencyLimiter limiter = concurrencyLimiter;
+
+        Runnable task = () -> {
+            if (future.isDone() || deadline.getRemainingMillis() <= 0) {
+                if (limiter != null) limiter.onIgnored();
+
+                String message = "The request timed out waiting to be sent.";
+                future.completeExceptionally(
+                    new BoxViewException(message, REQUEST_TIMEOUT_ERROR));
+                return;
+            }
+
+            Runnable retry = () -> attemptAsync(request,
+                                                deadline,
+                                                handler,
+                                                attempt + 1,
+                                                future);
+
+            try {
+                HttpResponse response;
+
+                try {
+                    response = send(request, deadline, limiter);
+                } catch (IOException e) {
+                    long backoff = getBackoff(request, null, e, deadline);
+                    schedule(retry, backoff, future);
+                    return;
+                }
+
+                Integer retryAfter = getRetryAfter(request,
+                                                   response,
+                                                   deadline,
+                                                   attempt);
+
+                if (retryAfter != null) {
+                    long wait = TimeUnit.SECONDS.toNanos(retryAfter);
+                    schedule(retry, wait, future);
+                } else if (isTransient(response)) {
+                    long backoff = getBackoff(request,
+                                              response,
+                                              null,
+                                              deadline);
+                    schedule(retry, backoff, future);
+                } else {
+                    handleRequestError(request, response, null);
+                    recordSuccess(deadline);
+                    future.complete(handler.handle(response));
+                }
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(rejected(e));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        };
+
+        try {
+            checkCircuit(request);
+
+            long wait = reservePermit(request, deadline);
+
+            if (wait > 0) {
+                schedule(() -> dispatch(task, future, limiter), wait, future);
+            } else {
+                dispatch(task, future, limiter);
+            }
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(rejected(e));
+        } catch (BoxViewException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Run a task for an asynchronous request on the executor, once the
+     * concurrency limiter has a permit free. Waiting for a permit doesn't hold
+     * a thread.
+     *
+     * @param task The task to run, which releases the permit.
+     * @param future The future of the request, which fails if the task can't
+     *               be run.
+     * @param limiter The concurrency limiter, or null for no limit.
+     *
+     * @return void
+     */
+    private void dispatch(Runnable task,
+                          CompletableFuture<?> future,
+                          ConcurrencyLimiter limiter) {
+        if (limiter == null) {
+            run(task, future, null);
+        } else {
+            limiter.acquireAsync().thenRun(() -> run(task, future, limiter));
+        }
+    }
+
+    /**
+     * Run a task for an asynchronous request on the executor.
+     *
+     * @param task The task to run, which releases the permit.
+     * @param future The future of the request, which fails if the task can't
+     *               be run.
+     * @param limiter The concurrency limiter the task holds a permit from, or
+     *                null.
+     *
+     * @return void
+     */
+    private void run(Runnable task,
+                     CompletableFuture<?> future,
+                     ConcurrencyLimiter limiter) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            if (limiter != null) limiter.onIgnored();
+
+            future.completeExceptionally(rejected(e));
+        }
+    }
+
+    /**
+     * Schedule a task for an asynchronous request, which is cancelled if the
+     * request completes first.
+     *
+     * @param task The task to run.
+     * @param delay The number of nanoseconds to wait before running the task.
+     * @param future The future of the request.
+     *
+     * @return void
+     */
+    private void schedule(Runnable task,
+                          long delay,
+                          CompletableFuture<?> future) {
+        ScheduledFuture<?> scheduled = scheduler.schedule(
+                                                    task,
+                                                    delay,
+                                                    TimeUnit.NANOSECONDS);
+        future.whenComplete((result, e) -> scheduled.cancel(false));
+    }
+
+    /**
+     * Wait before sending a request.
+     *
+     * @param request The HTTP request object that is waiting.
+     * @param nanos The number of nanoseconds to wait.
+     *
+     * @return void
+     * @throws BoxViewException
+     */
+    private static void pause(HttpUriRequest request, long nanos)
+                   throws BoxViewException {
+        if (nanos <= 0) {
+            return;
+        }
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            String message = "The request was interrupted while waiting to be "
+                             + "sent.";
+            error(REQUEST_INTERRUPTED_ERROR, message, request, null);
+        }
+    }
+
+    /**
+     * Acquire a permit from the concurrency limiter, waiting up to the
+     * deadline for one to be free.
+     *
+     * @param request The HTTP request object that is going to be sent.
+     * @param deadline The time budget of the call.
+     *
+     * @return The concurrency limiter the permit was acquired from, or null
+     *         if there is none.
+     * @throws BoxViewException
+     */
+    private ConcurrencyLimiter acquireConcurrency(HttpUriRequest request,
+                                                  Deadline deadline)
+                               throws BoxViewException {
+        ConcurrencyLimiter limiter = concurrencyLimiter;
 
-        String responseBody = null;
+        if (limiter == null) {
+            return null;
+        }
+
+        boolean acquired = false;
 
         try {
-            responseBody = EntityUtils.toString(response.getEntity());
-        } catch (IOException e) {
+            acquired = limiter.tryAcquire(deadline.getRemainingMillis(),
+                                          TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            String message = "The request was interrupted while waiting to be "
+                             + "sent.";
+            error(REQUEST_INTERRUPTED_ERROR, message, request, null);
         }
 
-        return handleJsonResponse(responseBody, request);
+        if (!acquired) {
+            String message = "The request timed out waiting for a "
+                             + "concurrency permit.";
+            error(REQUEST_TIMEOUT_ERROR, message, request, null);
+        }
+
+        return limiter;
     }
 
     /**
-     * Handle an error. We handle errors by throwing an exception.
+     * Fail a request right away if the circuit breaker of its host is open.
      *
-     * @param error An error code representing the error
-     *                     (use_underscore_separators).
-     * @param message The error message.
-     * @param request The HTTP request object.
-     * @param response The HTTP response object.
+     * @param request The HTTP request object that is going to be sent.
      *
      * @return void
      * @throws BoxViewException
      */
-    protected static void error(String error,
-                                String message,
-                                HttpUriRequest request,
-                                String responseBody)
-              throws BoxViewException {
-        if (request != null) {
-            URI uri = request.getURI();
-
-            message += "\n";
-            message += "Method: " + request.getMethod() + "\n";
-            message += "URL: " + uri.toString() + "\n";
-            message += "Query: " + uri.getQuery() + "\n";
-
-            Header[] headers = request.getAllHeaders();
-            message         += "Headers: " + GSON.toJson(headers) + "\n";
+    private void checkCircuit(HttpUriRequest request)
+                 throws BoxViewException {
+        CircuitBreaker breaker = circuitBreakers.get(request.getURI()
+                                                            .getHost());
 
-            String requestBody = "";
+        if (breaker != null && !breaker.isCallPermitted()) {
+            circuitOpen(request);
+        }
+    }
 
-            if (request.getMethod().equals("POST")) {
-                HttpEntity entity = ((HttpPost) request).getEntity();
+    /**
+     * Handle a request to a host whose circuit breaker is open.
+     *
+     * @param request The HTTP request object that was not sent.
+     *
+     * @return void
+     * @throws BoxViewException
+     */
+    private static void circuitOpen(HttpUriRequest request)
+                   throws BoxViewException {
+        String message = "The request was not sent because "
+                         + request.getURI().getHost()
+                         + " is failing.";
+        error(CIRCUIT_OPEN_ERROR, message, request, null);
+    }
 
-                try {
-                    requestBody = EntityUtils.toString(entity);
-                } catch (IOException e) {
-                } catch (UnsupportedOperationException e) {
-                }
-            }
+    /**
+     * Reserve a permit from the rate limiter of the request's endpoint.
+     *
+     * @param request The HTTP request object that is going to be sent.
+     * @param deadline The time budget of the call.
+     *
+     * @return The number of nanoseconds to wait before sending the request.
+     * @throws BoxViewException
+     */
+    private long reservePermit(HttpUriRequest request, Deadline deadline)
+                 throws BoxViewException {
+        String endpoint         = getEndpoint(request);
+        RateLimiter rateLimiter = rateLimiters.get(endpoint);
 
-            message += "Request Body: " + requestBody + "\n";
+        if (rateLimiter == null) {
+            return 0;
         }
 
-        if (responseBody != null) {
-            message += "\n";
-            message += "Response Body: " + responseBody + "\n";
+        long remaining = deadline.getRemainingMillis();
+        long wait      = rateLimiter.reserve(
+                                 TimeUnit.MILLISECONDS.toNanos(remaining));
+
+        if (wait < 0) {
+            String message = "The request timed out waiting for the "
+                             + endpoint + " rate limit.";
+            error(REQUEST_TIMEOUT_ERROR, message, request, null);
         }
 
-        throw new BoxViewException(message, error);
+        return wait;
     }
 
     /**
-     * Prepare and create an HTTP request object.
+     * Send a request to the server once, with timeouts that don't go past the
+     * deadline, release the concurrency permit held for it, and record the
+     * result with the host's circuit breaker.
      *
-     * @param path The path to add after the base path.
-     * @param getParams A key-value pair of GET params to be added to the URL.
-     * @param postParams A key-value pair of POST params to be sent in the body.
-     * @param requestOptions A key-value pair of request options that may modify
-     *                       the way the request is made.
+     * @param request The HTTP request object to send.
+     * @param deadline The time budget of the call.
+     * @param limiter The concurrency limiter the caller holds a permit from,
+     *                or null.
      *
-     * @return The HTTP request object.
+     * @return The HttpResponse response object.
      * @throws BoxViewException
+     * @throws IOException
      */
-    private HttpUriRequest createRequest(String path,
-                                         Map<String, Object> getParams,
-                                         Map<String, Object> postParams,
-                                         Map<String, Object> requestOptions)
-            throws BoxViewException {
-        if (getParams == null)  getParams  = new HashMap<String, Object>();
-        if (postParams == null) postParams = new HashMap<String, Object>();
+    private HttpResponse send(HttpUriRequest request,
+                              Deadline deadline,
+                              ConcurrencyLimiter limiter)
+            throws BoxViewException, IOException {
+        CircuitBreaker breaker = circuitBreakers.get(request.getURI()
+                                                            .getHost());
 
-        if (requestOptions == null) {
-            requestOptions = new HashMap<String, Object>();
-        }
+        if (breaker != null && !breaker.tryAcquire()) {
+            if (limiter != null) limiter.onIgnored();
 
-        HttpEntity requestEntity = null;
+            circuitOpen(request);
+        }
 
-        String method = "GET";
+        HttpResponse response = null;
 
-        if (requestOptions.containsKey("file")
-                && requestOptions.get("file") != null) {
-            method                                 = "POST";
-            MultipartEntityBuilder mpEntityBuilder = MultipartEntityBuilder
-                                                     .create();
-            mpEntityBuilder.setMode(HttpMultipartMode.BROWSER_COMPATIBLE);
+        if (request instanceof HttpRequestBase) {
+            ((HttpRequestBase) request).setConfig(deadline.getRequestConfig());
+        }
 
-            File file = (File) requestOptions.get("file");
-            mpEntityBuilder.addBinaryBody("file", file);
+        long startedAt = System.nanoTime();
 
-            for (Map.Entry<String, Object> param : postParams.entrySet()) {
-                String value = param.getValue().toString();
-                mpEntityBuilder.addTextBody(param.getKey(), value);
+        try {
+            response = httpClient.execute(request);
+        } catch (IOException e) {
+            long duration = System.nanoTime() - startedAt;
+
+            if (request.isAborted()) {
+                if (limiter != null) limiter.onIgnored();
+                if (breaker != null) breaker.onIgnored();
+            } else {
+                if (limiter != null) limiter.onDropped();
+                if (breaker != null) breaker.onFailure(duration);
             }
 
-            requestEntity = mpEntityBuilder.build();
-        } else if (!postParams.isEmpty()) {
-            method = "POST";
+            throw e;
+        }
 
-            try {
-                requestEntity = new StringEntity(GSON.toJson(postParams));
-            } catch (UnsupportedEncodingException e) {
+        long duration = System.nanoTime() - startedAt;
+
+        if (limiter != null) {
+            if (isPushback(response)) {
+                limiter.onDropped();
+            } else {
+                limiter.onSuccess(duration);
             }
         }
 
-        if (requestOptions.containsKey("httpMethod")
-                && requestOptions.get("httpMethod") != null) {
-            method = requestOptions.get("httpMethod").toString();
+        if (breaker != null) {
+            if (response.getStatusLine().getStatusCode() >= 500) {
+                breaker.onFailure(duration);
+            } else {
+                breaker.onSuccess(duration);
+            }
         }
 
-        String hostName = HOST;
+        return response;
+    }
 
-        if (requestOptions.containsKey("host")
-                && requestOptions.get("host") != null) {
-            hostName = requestOptions.get("host").toString();
+    /**
+     * Get the number of nanoseconds to wait before retrying a request that
+     * failed with a transient error, based on the retry policy. The response
+     * is consumed if the request is going to be retried, which returns its
+     * connection to the pool. If the request isn't going to be retried, the
+     * error is thrown.
+     *
+     * @param request The HTTP request object that was sent.
+     * @param response The HTTP response object, or null if there was none.
+     * @param failure The exception thrown while sending the request, or null
+     *                if there was a response.
+     * @param deadline The time budget of the call.
+     *
+     * @return The number of nanoseconds to wait.
+     * @throws BoxViewException
+     */
+    private long getBackoff(HttpUriRequest request,
+                            HttpResponse response,
+                            IOException failure,
+                            Deadline deadline)
+            throws BoxViewException {
+        RetryPolicy policy = retryPolicy;
+        long backoff       = -1;
+        int failures       = deadline.recordFailure();
+
+        // an aborted request was cancelled by the caller
+        if (policy != null && !request.isAborted() && isRepeatable(request)) {
+            long remaining = deadline.getRemainingMillis();
+            backoff        = policy.getDelay(
+                                 request.getMethod(),
+                                 failures,
+                                 TimeUnit.MILLISECONDS.toNanos(remaining));
         }
 
-        URI uri = getUri(hostName, path, getParams);
-        return getRequest(method, uri, requestEntity, requestOptions);
+        if (backoff < 0) {
+            handleRequestError(request, response, failure);
+        }
+
+        if (response != null) {
+            EntityUtils.consumeQuietly(response.getEntity());
+        }
+
+        return backoff;
     }
 
     /**
-     * Get a timeout for the request.
+     * Count a call that succeeded, if it needed a retry to.
      *
-     * @param requestOptions A key-value pair of request options that may modify
-     *                       the way the request is made.
+     * @param deadline The time budget of the call.
      *
-     * @return The maximum number of seconds to retry for..
+     * @return void
      */
-    private Integer createTimeout(Map<String, Object> requestOptions) {
-        timestampRequested = System.currentTimeMillis() * 1000;
-        return (requestOptions != null
-                && requestOptions.containsKey("timeout")
-                && ((Integer) requestOptions.get("timeout")) > 0)
-                   ? (Integer) requestOptions.get("timeout")
-                   : DEFAULT_RETRY_TIMEOUT;
+    private void recordSuccess(Deadline deadline) {
+        RetryPolicy policy = retryPolicy;
+
+        if (policy != null && deadline.getFailures() > 0) {
+            policy.recordRecovered();
+        }
     }
 
     /**
-     * Execute a request to the server and return the response, while retrying
-     * based on any Retry-After headers that are sent back.
+     * Get the number of seconds to wait before retrying a request, based on
+     * the Retry-After header of the response. The response is consumed if the
+     * request is going to be retried, which returns its connection to the
+     * pool.
      *
-     * @param request The HTTP request object to send, and possibly retry.
-     * @param timeout The maximum number of seconds to retry for.
+     * @param request The HTTP request object that was sent.
+     * @param response The HTTP response object.
+     * @param deadline The time budget of the call.
+     * @param attempt The number of the attempt that got this response.
      *
-     * @return The HttpResponse response object.
+     * @return The number of seconds to wait, or null if the request should not
+     *         be retried.
      * @throws BoxViewException
      */
-    private HttpResponse execute(HttpUriRequest request, Integer timeout)
+    private Integer getRetryAfter(HttpUriRequest request,
+                                  HttpResponse response,
+                                  Deadline deadline,
+                                  int attempt)
             throws BoxViewException {
-        HttpClient client     = getHttpClient();
-        HttpResponse response = null;
+        Header header = response.getFirstHeader("Retry-After");
 
-        try {
-            response = client.execute(request);
-        } catch (IOException e) {
-            handleRequestError(request, response, e);
+        if (header == null || !isRepeatable(request)) {
+            return null;
         }
 
-        if (response.getFirstHeader("Retry-After") != null) {
-            Integer seconds = Math.round(System.currentTimeMillis()
-                                         - timestampRequested);
+        Integer retryAfter = parseRetryAfter(header.getValue());
+        String message     = null;
 
-            if (timeout > 0 && seconds >= timeout) {
-                String message = "The request timed out after retrying for "
-                                 + seconds + " seconds.";
-
-                String responseBody = null;
+        // don't wait for a retry that can't finish before the deadline
+        if (deadline.isExceededBy(retryAfter)) {
+            message = "The request timed out after retrying for "
+                      + deadline.getElapsedSeconds() + " seconds.";
+        } else if (attempt > maxRetryAttempts) {
+            message = "The request timed out after retrying "
+                      + maxRetryAttempts + " times.";
+        }
 
-                try {
-                    responseBody = EntityUtils.toString(response.getEntity());
-                } catch (IOException e) {
-                }
+        if (message != null) {
+            String responseBody = null;
 
-                error(REQUEST_TIMEOUT_ERROR, message, request, responseBody);
+            try {
+                responseBody = EntityUtils.toString(response.getEntity());
+            } catch (IOException e) {
             }
 
-            String retryAfter = response.getFirstHeader("Retry-After")
-                                        .getValue();
+            error(REQUEST_TIMEOUT_ERROR, message, request, responseBody);
+        }
 
-            try {
-                Thread.sleep(Integer.parseInt(retryAfter) * 1000);
-            } catch (InterruptedException e) {
-                return null;
-            }
+        // release the connection back to the pool before waiting
+        EntityUtils.consumeQuietly(response.getEntity());
+
+        return retryAfter;
+    }
 
-            return execute(request, timeout);
+    /**
+     * Can a request be sent again? A request with a body that is read from a
+     * stream can't.
+     *
+     * @param request The HTTP request object.
+     *
+     * @return Can it be sent again?
+     */
+    private static boolean isRepeatable(HttpUriRequest request) {
+        if (!(request instanceof HttpEntityEnclosingRequest)) {
+            return true;
         }
 
-        handleRequestError(request, response, null);
-        return response;
+        HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+        return entity == null || entity.isRepeatable();
+    }
+
+    /**
+     * Read the JSON body of a response and decode it.
+     *
+     * @param response The HTTP response object.
+     * @param request The HTTP request object.
+     *
+     * @return A key-value pair decoded from JSON.
+     * @throws BoxViewException
+     */
+    private static Map<String, Object> readJsonResponse(HttpResponse response,
+                                                        HttpUriRequest request)
+                   throws BoxViewException {
+        String responseBody = null;
+
+        try {
+            responseBody = EntityUtils.toString(response.getEntity());
+        } catch (IOException e) {
+        }
+
+        return handleJsonResponse(responseBody, request);
     }
 
     /**
@@ -411,21 +1797,228 @@ public class Request {
     }
 
     /**
-     * Get a new HttpClient instance using sensible defaults.
+     * Create an HttpClient instance backed by a connection pool, using
+     * sensible defaults.
+     *
+     * @param connectionManager The connection pool to lease connections from.
      *
      * @return A new HttpClient instance.
      */
-    private static HttpClient getHttpClient() {
+    private static CloseableHttpClient createHttpClient(
+                         PoolingHttpClientConnectionManager connectionManager) {
+        int connectTimeout   = DEFAULT_CONNECT_TIMEOUT * 1000;
+        int readTimeout      = DEFAULT_READ_TIMEOUT * 1000;
         RequestConfig config = RequestConfig.custom()
-                               .setConnectTimeout(10 * 1000)
-                               .setConnectionRequestTimeout(60 * 1000)
-                               .setSocketTimeout(60 * 1000)
+                               .setConnectTimeout(connectTimeout)
+                               .setConnectionRequestTimeout(readTimeout)
+                               .setSocketTimeout(readTimeout)
                                .build();
         return HttpClientBuilder.create()
+                                .setConnectionManager(connectionManager)
                                 .setDefaultRequestConfig(config)
+                                .evictExpiredConnections()
+                                .evictIdleConnections(
+                                    IDLE_CONNECTION_TIMEOUT.longValue(),
+                                    TimeUnit.SECONDS)
                                 .build();
     }
 
+    /**
+     * Create the default executor for asynchronous requests. A request can't
+     * make progress without a pooled connection, so there are never more
+     * threads than connections; any other requests wait in the queue without
+     * holding a thread.
+     *
+     * @param maxThreads The maximum number of threads.
+     *
+     * @return A new executor.
+     */
+    private static ExecutorService createExecutor(Integer maxThreads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                                          maxThreads,
+                                          maxThreads,
+                                          IDLE_CONNECTION_TIMEOUT,
+                                          TimeUnit.SECONDS,
+                                          new LinkedBlockingQueue<Runnable>(),
+                                          createThreadFactory("async"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Create the scheduler for asynchronous requests waiting to be retried.
+     *
+     * @return A new scheduler.
+     */
+    private static ScheduledExecutorService createScheduler() {
+        ScheduledThreadPoolExecutor scheduler =
+                new ScheduledThreadPoolExecutor(1,
+                                                createThreadFactory("retry"));
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    /**
+     * Create a factory for daemon threads, so that pending requests don't keep
+     * the JVM alive.
+     *
+     * @param name The name to give the threads.
+     *
+     * @return A new thread factory.
+     */
+    private static ThreadFactory createThreadFactory(final String name) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable,
+                                           "box-view-" + name + "-"
+                                           + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Create a future that has already failed.
+     *
+     * @param e The exception to fail the future with.
+     *
+     * @return A failed future.
+     */
+    private static <T> CompletableFuture<T> failedFuture(Exception e) {
+        CompletableFuture<T> future = new CompletableFuture<T>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    /**
+     * Parse the value of a Retry-After header, which is either a number of
+     * seconds or an HTTP date.
+     *
+     * @param retryAfter The value of the Retry-After header.
+     *
+     * @return The number of seconds to wait, which is at least 1.
+     */
+    private static Integer parseRetryAfter(String retryAfter) {
+        try {
+            return Math.max(1, Integer.parseInt(retryAfter.trim()));
+        } catch (NumberFormatException e) {
+        }
+
+        Date date = DateUtils.parseDate(retryAfter);
+
+        if (date == null) {
+            return 1;
+        }
+
+        long millis = date.getTime() - System.currentTimeMillis();
+        return (int) Math.max(1, (millis + 999) / 1000);
+    }
+
+    /**
+     * Create the error for a request that could not be scheduled, because
+     * this instance has been closed.
+     *
+     * @param e The exception thrown by the executor.
+     *
+     * @return The error.
+     */
+    private static BoxViewException rejected(RejectedExecutionException e) {
+        String message = "The request could not be scheduled: "
+                         + e.getMessage();
+        return new BoxViewException(message, HTTP_CLIENT_ERROR);
+    }
+
+    /**
+     * Did a request fail with an error that might go away if it's retried?
+     *
+     * @param response The HTTP response object.
+     *
+     * @return Is the error transient?
+     */
+    private static boolean isTransient(HttpResponse response) {
+        int statusCode = response.getStatusLine().getStatusCode();
+        return statusCode == 429
+               || statusCode == 500
+               || statusCode == 502
+               || statusCode == 503
+               || statusCode == 504;
+    }
+
+    /**
+     * Is the server pushing back because it's overloaded? A Retry-After
+     * header on a successful response only means the content isn't ready yet,
+     * so it doesn't count.
+     *
+     * @param response The HTTP response object.
+     *
+     * @return Is the server pushing back?
+     */
+    private static boolean isPushback(HttpResponse response) {
+        int statusCode = response.getStatusLine().getStatusCode();
+        return statusCode == 429 || statusCode >= 500;
+    }
+
+    /**
+     * Get the key that identical requests share when they're coalesced.
+     *
+     * @param request The HTTP request object.
+     *
+     * @return The key, or null if the request can't be coalesced.
+     */
+    private String getCoalescingKey(HttpUriRequest request) {
+        if (!coalescing
+                || !request.getMethod().equals("GET")
+                || request.getURI().getPath().contains("/content")) {
+            return null;
+        }
+
+        // JSON and raw responses to the same URI aren't interchangeable
+        Header accept = request.getFirstHeader("Accept");
+        return accept.getValue() + " " + request.getURI();
+    }
+
+    /**
+     * Get the class of endpoint that a request is sent to, for rate limiting.
+     *
+     * @param request The HTTP request object.
+     *
+     * @return The class of endpoint.
+     */
+    private static String getEndpoint(HttpUriRequest request) {
+        URI uri     = request.getURI();
+        String path = uri.getPath();
+
+        if (!HOST.equals(uri.getHost())
+                || (request.getMethod().equals("POST")
+                    && path.equals(BASE_PATH + Document.PATH))) {
+            return UPLOAD_ENDPOINT;
+        }
+
+        if (path.startsWith(BASE_PATH + Session.PATH)) {
+            return SESSION_ENDPOINT;
+        }
+
+        if (path.endsWith("/thumbnail") || path.contains("/content")) {
+            return CONTENT_ENDPOINT;
+        }
+
+        return METADATA_ENDPOINT;
+    }
+
+    /**
+     * Get the connection pool route for a host.
+     *
+     * @param hostName The hostname to make requests to.
+     *
+     * @return The route to the host.
+     */
+    private static HttpRoute getRoute(String hostName) {
+        return new HttpRoute(new HttpHost(hostName, 443, PROTOCOL));
+    }
+
     /**
      * Create a URI, given a hostname, path, and GET params.
 
@@ -545,6 +2138,10 @@ public class Request {
                                            HttpResponse response,
                                            java.lang.Exception e)
                    throws BoxViewException {
+        if (response == null) {
+            error(HTTP_CLIENT_ERROR, e.getMessage(), request, null);
+        }
+
         Integer statusCode = response.getStatusLine().getStatusCode();
         String error       = handleHttpError(statusCode);
         String message     = "Server Error";
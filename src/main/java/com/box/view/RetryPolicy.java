@@ -0,0 +1,217 @@
+package com.box.view;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Decides whether a call that failed with a transient error (a connection
+ * failure, a 429 without a Retry-After header, or a 500, 502, 503 or 504) is
+ * retried, and how long to wait first. Waits grow exponentially with "full
+ * jitter": a random time between zero and the exponential delay, so retries
+ * from many clients don't arrive in waves.
+ *
+ * GET, PUT and DELETE calls can be repeated safely, so they're retried. POST
+ * calls, which upload documents and create sessions, could create duplicates
+ * and are only retried if that's enabled.
+ */
+public class RetryPolicy {
+    /**
+     * The defaults of the policy.
+     */
+    public static final Integer DEFAULT_MAX_ATTEMPTS = 3;
+    public static final Integer DEFAULT_BASE_DELAY   = 200;
+    public static final Integer DEFAULT_MAX_DELAY    = 10 * 1000;
+
+    /**
+     * The maximum number of attempts of a call, including the first one.
+     */
+    private final int maxAttempts;
+
+    /**
+     * The number of milliseconds the exponential delay starts at.
+     */
+    private final long baseDelay;
+
+    /**
+     * The maximum number of milliseconds to wait before a retry.
+     */
+    private final long maxDelay;
+
+    /**
+     * Are POST calls retried?
+     */
+    private final boolean retryPosts;
+
+    /**
+     * The number of retries, indexed by the number of the attempt that
+     * failed, starting at 1.
+     */
+    private final AtomicLongArray retries;
+
+    /**
+     * The number of calls that succeeded after at least one retry.
+     */
+    private final AtomicLong recovered = new AtomicLong();
+
+    /**
+     * The number of calls that failed after running out of retries or time.
+     */
+    private final AtomicLong exhausted = new AtomicLong();
+
+    /**
+     * Instantiate the policy with the defaults, which don't retry POST calls.
+     */
+    public RetryPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS,
+             DEFAULT_BASE_DELAY,
+             DEFAULT_MAX_DELAY,
+             false);
+    }
+
+    /**
+     * Instantiate the policy.
+     *
+     * @param maxAttempts The maximum number of attempts of a call, including
+     *                    the first one.
+     * @param baseDelay The number of milliseconds the exponential delay starts
+     *                  at.
+     * @param maxDelay The maximum number of milliseconds to wait before a
+     *                 retry.
+     * @param retryPosts Should POST calls, which upload documents and create
+     *                   sessions, be retried?
+     */
+    public RetryPolicy(int maxAttempts,
+                       long baseDelay,
+                       long maxDelay,
+                       boolean retryPosts) {
+        if (maxAttempts < 1 || baseDelay < 0 || maxDelay < baseDelay) {
+            String message = "maxAttempts must be at least 1, and delays must "
+                             + "be positive with maxDelay at least baseDelay.";
+            throw new IllegalArgumentException(message);
+        }
+
+        this.maxAttempts = maxAttempts;
+        this.baseDelay   = baseDelay;
+        this.maxDelay    = maxDelay;
+        this.retryPosts  = retryPosts;
+        this.retries     = new AtomicLongArray(maxAttempts + 1);
+    }
+
+    /**
+     * Get the maximum number of attempts of a call.
+     *
+     * @return The maximum number of attempts, including the first one.
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Get the number of retries made across all calls.
+     *
+     * @return The number of retries.
+     */
+    public long getRetries() {
+        long total = 0;
+
+        for (int i = 0; i < retries.length(); i++) {
+            total += retries.get(i);
+        }
+
+        return total;
+    }
+
+    /**
+     * Get the number of retries made after a specific attempt failed.
+     *
+     * @param attempt The number of the attempt that failed, starting at 1.
+     *
+     * @return The number of retries.
+     */
+    public long getRetries(int attempt) {
+        if (attempt < 1 || attempt >= retries.length()) {
+            return 0;
+        }
+
+        return retries.get(attempt);
+    }
+
+    /**
+     * Get the number of calls that succeeded after at least one retry.
+     *
+     * @return The number of recovered calls.
+     */
+    public long getRecovered() {
+        return recovered.get();
+    }
+
+    /**
+     * Get the number of calls that failed after running out of retries or
+     * time.
+     *
+     * @return The number of exhausted calls.
+     */
+    public long getExhausted() {
+        return exhausted.get();
+    }
+
+    /**
+     * Get how long to wait before retrying a call, and count the retry.
+     *
+     * @param method The HTTP method of the call.
+     * @param failures The number of attempts of the call that have failed,
+     *                 including this one.
+     * @param maxWait The maximum number of nanoseconds the call has left to
+     *                wait.
+     *
+     * @return The number of nanoseconds to wait, or -1 if the call shouldn't be
+     *         retried.
+     */
+    long getDelay(String method, int failures, long maxWait) {
+        if (!isRetryable(method)) {
+            return -1;
+        }
+
+        double exponential = baseDelay * Math.pow(2, failures - 1);
+        long ceiling       = (long) Math.min(maxDelay, exponential);
+        long delay         = TimeUnit.MILLISECONDS.toNanos(
+                                 ThreadLocalRandom.current()
+                                                  .nextLong(ceiling + 1));
+
+        if (failures >= maxAttempts || delay > maxWait) {
+            exhausted.incrementAndGet();
+            return -1;
+        }
+
+        retries.incrementAndGet(failures);
+        return delay;
+    }
+
+    /**
+     * Count a call that succeeded after at least one retry.
+     *
+     * @return void
+     */
+    void recordRecovered() {
+        recovered.incrementAndGet();
+    }
+
+    /**
+     * Can calls using an HTTP method be retried?
+     *
+     * @param method The HTTP method.
+     *
+     * @return Can the call be retried?
+     */
+    private boolean isRetryable(String method) {
+        if (method.equals("POST")) {
+            return retryPosts;
+        }
+
+        return method.equals("GET")
+               || method.equals("PUT")
+               || method.equals("DELETE");
+    }
+}
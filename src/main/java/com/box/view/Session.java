@@ -1,9 +1,11 @@
 package com.box.view;
 
 import java.text.ParseException;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.http.HttpEntity;
 
@@ -21,22 +23,22 @@ public class Session extends Base {
     /**
      * The document that created this session.
      */
-    private Document document;
+    private final Document document;
 
     /**
      * The session ID.
      */
-    private String id;
+    private final String id;
 
     /**
      * The date the session expires, formatted as RFC 3339.
      */
-    private Date expiresAt;
+    private final Date expiresAt;
 
     /**
      * The URLs for a session.
      */
-    private Map<String, String> urls = new HashMap<String, String>();
+    private final Map<String, String> urls;
 
     /**
      * Instantiate the session.
@@ -52,10 +54,34 @@ public class Session extends Base {
      *                 'realtime', and 'view'.
      */
     public Session(BoxViewClient client, Map<String, Object> data) {
-        this.client = client;
-        id          = (String) data.get("id");
+        this(client,
+             (String) data.get("id"),
+             getDocument(client, data),
+             getExpiresAt(data),
+             getUrls(data));
+    }
 
-        setValues(data);
+    /**
+     * Instantiate the session from values that have already been read.
+     *
+     * @param client The client instance to make requests from.
+     * @param id The session ID.
+     * @param document The document the session was created for.
+     * @param expiresAt The date the session expires.
+     * @param urls A key-value pair of URLs for 'assets', 'realtime', and
+     *             'view'.
+     */
+    Session(BoxViewClient client,
+            String id,
+            Document document,
+            Date expiresAt,
+            Map<String, String> urls) {
+        this.client    = client;
+        this.id        = id;
+        this.document  = document;
+        this.expiresAt = expiresAt;
+        this.urls      = Collections.unmodifiableMap(
+                             new HashMap<String, String>(urls));
     }
 
     /**
@@ -133,6 +159,24 @@ public class Session extends Base {
         return (response == null);
     }
 
+    /**
+     * Delete a session asynchronously.
+     *
+     * @return A future completed with whether the session was deleted.
+     */
+    public CompletableFuture<Boolean> deleteAsync() {
+        Map<String, Object> options = new HashMap<String, Object>();
+        options.put("httpMethod", "DELETE");
+        options.put("rawResponse", true);
+
+        return requestHttpEntityAsync(client,
+                                      PATH + "/" + id,
+                                      null,
+                                      null,
+                                      options)
+               .thenApply(response -> response == null);
+    }
+
     /**
      * Create a session for a specific document by ID that may expire.
      *
@@ -147,12 +191,12 @@ public class Session extends Base {
         Map<String, Object> postParams = new HashMap<String, Object>();
         postParams.put("document_id", id);
 
-        Map<String, Object> metadata = requestJson(client,
-                                                   PATH,
-                                                   null,
-                                                   postParams,
-                                                   null);
-        return new Session(client, metadata);
+        HttpEntity response = requestJsonEntity(client,
+                                                PATH,
+                                                null,
+                                                postParams,
+                                                null);
+        return read(client, response);
     }
 
     /**
@@ -180,6 +224,73 @@ public class Session extends Base {
                                  String id,
                                  Map<String, Object> params)
                   throws BoxViewException, ParseException {
+        HttpEntity response = requestJsonEntity(client,
+                                                PATH,
+                                                null,
+                                                getCreateParams(id, params),
+                                                null);
+        return read(client, response);
+    }
+
+    /**
+     * Create a session for a specific document by ID asynchronously.
+     *
+     * @param client The client instance to make requests from.
+     * @param id The ID of the file to create a session for.
+     *
+     * @return A future completed with a new session instance.
+     */
+    public static CompletableFuture<Session> createAsync(BoxViewClient client,
+                                                         String id) {
+        Map<String, Object> postParams = new HashMap<String, Object>();
+        postParams.put("document_id", id);
+
+        return parseAsync(requestJsonEntityAsync(client,
+                                                 PATH,
+                                                 null,
+                                                 postParams,
+                                                 null),
+                          response -> read(client, response));
+    }
+
+    /**
+     * Create a session for a specific document by ID asynchronously.
+     *
+     * @param client The client instance to make requests from.
+     * @param id The ID of the file to create a session for.
+     * @param params A key-value pair of options relating to the new session.
+     *               See create() for the available options.
+     *
+     * @return A future completed with a new session instance.
+     * @throws ParseException
+     */
+    public static CompletableFuture<Session> createAsync(
+                                                    BoxViewClient client,
+                                                    String id,
+                                                    Map<String, Object> params)
+                                             throws ParseException {
+        return parseAsync(requestJsonEntityAsync(client,
+                                                 PATH,
+                                                 null,
+                                                 getCreateParams(id, params),
+                                                 null),
+                          response -> read(client, response));
+    }
+
+    /**
+     * Get the POST params to create a session with.
+     *
+     * @param id The ID of the file to create a session for.
+     * @param params A key-value pair of options relating to the new session.
+     *               Pass-thru from create().
+     *
+     * @return A key-value pair of POST params.
+     * @throws ParseException
+     */
+    private static Map<String, Object> getCreateParams(
+                                                    String id,
+                                                    Map<String, Object> params)
+                   throws ParseException {
         Map<String, Object> postParams = new HashMap<String, Object>();
         postParams.put("document_id",  id);
 
@@ -210,61 +321,92 @@ public class Session extends Base {
             postParams.put("is_text_selectable", isTextSelectable);
         }
 
-        Map<String, Object> metadata = requestJson(client,
-                                                   PATH,
-                                                   null,
-                                                   postParams,
-                                                   null);
-        return new Session(client, metadata);
+        return postParams;
     }
 
     /**
-     * Update the current document instance with new metadata.
+     * Read a session from the JSON response of a request.
      *
-     * @param data A key-value pair to instantiate the object with. Use the
-     *             following values:
-     *               - Document 'document' The document the session was created
-     *                 for.
-     *               - string|Date 'expiresAt' The date the session was created.
-     *               - object 'urls' A key-value pair of URLs for 'assets',
-     *                 'realtime', and 'view'.
+     * @param client The client instance to make requests from.
+     * @param response The HttpEntity of the JSON response.
      *
-     * @return void
+     * @return A session instance.
+     * @throws BoxViewException
      */
-    private void setValues(Map<String, Object> data) {
-        if (data.containsKey("document")) {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> documentMap = (Map<String, Object>)
-                                              data.get("document");
-            document = new Document(client, documentMap);
+    private static Session read(BoxViewClient client, HttpEntity response)
+                   throws BoxViewException {
+        Session session = readJson(response, new SessionAdapter(client));
+
+        if (session.getId() == null) {
+            String message = "response is not in a valid format.";
+            error(Request.JSON_RESPONSE_ERROR, message);
         }
 
-        if (data.containsKey("expires_at")) {
-            data.put("expiresAt", data.get("expires_at"));
-            data.remove("expires_at");
+        return session;
+    }
+
+    /**
+     * Get the document a session was created for from a key-value pair.
+     *
+     * @param client The client instance to make requests from.
+     * @param data A key-value pair with the document under 'document', as a
+     *             document instance or a key-value pair.
+     *
+     * @return The document, or null.
+     */
+    private static Document getDocument(BoxViewClient client,
+                                        Map<String, Object> data) {
+        Object document = data.get("document");
+
+        if (document instanceof Map<?, ?>) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> documentMap = (Map<String, Object>) document;
+            return new Document(client, documentMap);
         }
 
-        if (data.containsKey("expiresAt")) {
-            expiresAt = (data.get("expiresAt") instanceof Date)
-                        ? (Date) data.get("expiresAt")
-                        : parseDate(data.get("expiresAt").toString());
+        return (document instanceof Document) ? (Document) document : null;
+    }
+
+    /**
+     * Get the date a session expires from a key-value pair.
+     *
+     * @param data A key-value pair with the date under 'expiresAt' or
+     *             'expires_at', as a date object or an RFC 3339 string.
+     *
+     * @return The date the session expires, or null.
+     */
+    private static Date getExpiresAt(Map<String, Object> data) {
+        Object expiresAt = data.containsKey("expiresAt")
+                           ? data.get("expiresAt")
+                           : data.get("expires_at");
+
+        if (expiresAt == null || expiresAt instanceof Date) {
+            return (Date) expiresAt;
         }
 
-        if (data.containsKey("urls") && data.get("urls") instanceof Map<?, ?>) {
-            @SuppressWarnings("unchecked")
-            Map<String, String> urls = (Map<String, String>) data.get("urls");
+        return parseDate(expiresAt.toString());
+    }
 
-            if (urls.containsKey("assets")) {
-                this.urls.put("assets", urls.get("assets"));
-            }
+    /**
+     * Get the URLs of a session from a key-value pair.
+     *
+     * @param data A key-value pair with the URLs under 'urls'.
+     *
+     * @return A key-value pair of URLs for 'assets', 'realtime', and 'view'.
+     */
+    private static Map<String, String> getUrls(Map<String, Object> data) {
+        Map<String, String> urls = new HashMap<String, String>();
 
-            if (urls.containsKey("realtime")) {
-                this.urls.put("realtime", urls.get("realtime"));
-            }
+        if (data.get("urls") instanceof Map<?, ?>) {
+            Map<?, ?> urlsMap = (Map<?, ?>) data.get("urls");
 
-            if (urls.containsKey("view")) {
-                this.urls.put("view", urls.get("view"));
+            for (String name : new String[] {"assets", "realtime", "view"}) {
+                if (urlsMap.get(name) != null) {
+                    urls.put(name, urlsMap.get(name).toString());
+                }
             }
         }
+
+        return urls;
     }
 }
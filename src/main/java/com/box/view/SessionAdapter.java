@@ -0,0 +1,176 @@
+package com.box.view;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Reads a session straight from its JSON representation in an API response,
+ * and writes it back in the same shape, without going through key-value
+ * pairs or reflection.
+ */
+class SessionAdapter extends TypeAdapter<Session> {
+    /**
+     * The URLs a session can have.
+     */
+    private static final String[] URLS = {"assets", "realtime", "view"};
+
+    /**
+     * The client instance the sessions make requests from.
+     */
+    private final BoxViewClient client;
+
+    /**
+     * Reads the document of a session.
+     */
+    private final DocumentAdapter documentAdapter;
+
+    /**
+     * Set up the adapter.
+     *
+     * @param client The client instance the sessions make requests from.
+     */
+    SessionAdapter(BoxViewClient client) {
+        this.client     = client;
+        documentAdapter = new DocumentAdapter(client);
+    }
+
+    /**
+     * Read a session.
+     *
+     * @param reader The JSON reader, positioned at the session.
+     *
+     * @return A session instance, or null if the JSON is null.
+     * @throws IOException
+     * @throws Base.ServerErrorResponse If the JSON is an error response.
+     */
+    public Session read(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        String id                = null;
+        Document document        = null;
+        Date expiresAt           = null;
+        Map<String, String> urls = new HashMap<String, String>();
+        String type              = null;
+        String message           = "Server Error";
+
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+
+            if (field.equals("document")
+                    && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                document = documentAdapter.read(reader);
+            } else if (field.equals("urls")
+                           && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                readUrls(reader, urls);
+            } else if (reader.peek() != JsonToken.STRING) {
+                reader.skipValue();
+            } else if (field.equals("id")) {
+                id = reader.nextString();
+            } else if (field.equals("expires_at")) {
+                expiresAt = Base.parseDate(reader.nextString());
+            } else if (field.equals("type")) {
+                type = reader.nextString();
+            } else if (field.equals("message")) {
+                message = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+
+        reader.endObject();
+
+        // the message may come after the type, so it's only known at the end
+        if ("error".equals(type)) {
+            throw new Base.ServerErrorResponse(message);
+        }
+
+        return new Session(client, id, document, expiresAt, urls);
+    }
+
+    /**
+     * Write a session.
+     *
+     * @param writer The JSON writer.
+     * @param session The session instance.
+     *
+     * @return void
+     * @throws IOException
+     */
+    public void write(JsonWriter writer, Session session) throws IOException {
+        if (session == null) {
+            writer.nullValue();
+            return;
+        }
+
+        Date expiresAt = session.getExpiresAt();
+
+        writer.beginObject();
+        writer.name("type").value("session");
+        writer.name("id").value(session.getId());
+        writer.name("document");
+        documentAdapter.write(writer, session.getDocument());
+        writer.name("expires_at")
+              .value(expiresAt != null ? Base.date(expiresAt) : null);
+        writer.name("urls").beginObject();
+        writer.name("assets").value(session.getAssetsUrl());
+        writer.name("realtime").value(session.getRealtimeUrl());
+        writer.name("view").value(session.getViewUrl());
+        writer.endObject();
+        writer.endObject();
+    }
+
+    /**
+     * Read the URLs of a session.
+     *
+     * @param reader The JSON reader, positioned at the URLs.
+     * @param urls The key-value pair to put the URLs in.
+     *
+     * @return void
+     * @throws IOException
+     */
+    private static void readUrls(JsonReader reader, Map<String, String> urls)
+                        throws IOException {
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+
+            if (reader.peek() == JsonToken.STRING && isUrl(name)) {
+                urls.put(name, reader.nextString());
+            } else {
+                reader.skipValue();
+            }
+        }
+
+        reader.endObject();
+    }
+
+    /**
+     * Is a field one of the URLs a session can have?
+     *
+     * @param name The name of the field.
+     *
+     * @return Is it a session URL?
+     */
+    private static boolean isUrl(String name) {
+        for (String url : URLS) {
+            if (url.equals(name)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,119 @@
+package com.box.view;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.MIME;
+import org.apache.http.entity.mime.content.AbstractContentBody;
+
+/**
+ * The file part of a multipart upload, read from a stream as it's sent
+ * instead of from a file on disk. If the length of the stream is known, the
+ * upload has a Content-Length; otherwise it's sent with chunked transfer
+ * encoding. The stream can only be read once, so an upload with it is never
+ * retried.
+ */
+class StreamBody extends AbstractContentBody {
+    /**
+     * The size of the buffer used to copy the stream.
+     */
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * The stream to upload.
+     */
+    private final InputStream stream;
+
+    /**
+     * The name of the file.
+     */
+    private final String filename;
+
+    /**
+     * The number of bytes in the stream, or -1 if it isn't known.
+     */
+    private final long length;
+
+    /**
+     * Create the file part.
+     *
+     * @param stream The stream to upload. It's closed once it has been sent.
+     * @param filename The name of the file.
+     * @param length The number of bytes in the stream, or -1 if it isn't
+     *               known.
+     */
+    StreamBody(InputStream stream, String filename, long length) {
+        super(ContentType.DEFAULT_BINARY);
+        this.stream   = stream;
+        this.filename = filename;
+        this.length   = length;
+    }
+
+    /**
+     * Get the name of the file.
+     *
+     * @return The file name.
+     */
+    public String getFilename() {
+        return filename;
+    }
+
+    /**
+     * Get the transfer encoding of the part.
+     *
+     * @return Always binary.
+     */
+    public String getTransferEncoding() {
+        return MIME.ENC_BINARY;
+    }
+
+    /**
+     * Get the number of bytes in the part.
+     *
+     * @return The number of bytes, or -1 if it isn't known.
+     */
+    public long getContentLength() {
+        return length;
+    }
+
+    /**
+     * Copy the stream to the request body, and close it.
+     *
+     * @param out The request body.
+     *
+     * @return void
+     * @throws IOException
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        byte[] buffer  = new byte[BUFFER_SIZE];
+        long remaining = (length < 0) ? Long.MAX_VALUE : length;
+
+        try {
+            while (remaining > 0) {
+                int count = stream.read(buffer,
+                                        0,
+                                        (int) Math.min(buffer.length,
+                                                       remaining));
+
+                if (count < 0) {
+                    break;
+                }
+
+                out.write(buffer, 0, count);
+                remaining -= count;
+            }
+        } finally {
+            stream.close();
+        }
+
+        // a short stream would leave the request body malformed
+        if (length >= 0 && remaining > 0) {
+            String message = "The stream ended " + remaining + " bytes "
+                             + "before its length of " + length + ".";
+            throw new EOFException(message);
+        }
+    }
+}
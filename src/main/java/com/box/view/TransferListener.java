@@ -0,0 +1,24 @@
+package com.box.view;
+
+/**
+ * Receives the progress of uploads and downloads, such as to spot slow
+ * transfers or to measure throughput.
+ *
+ * The listener is called on the thread doing the transfer, at most every
+ * TransferProgress.REPORT_INTERVAL milliseconds while bytes are moving, and
+ * once more when the transfer is done. It should return quickly, since the
+ * transfer waits for it. Exceptions it throws are ignored, so it can't break
+ * a transfer.
+ */
+public interface TransferListener {
+    /**
+     * Receive the progress of a transfer. The same progress instance is
+     * passed for every call about one transfer, so it can be used to tell
+     * transfers apart; it's only updated between calls.
+     *
+     * @param progress The progress of the transfer.
+     *
+     * @return void
+     */
+    void onProgress(TransferProgress progress);
+}
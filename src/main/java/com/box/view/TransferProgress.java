@@ -0,0 +1,233 @@
+package com.box.view;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The progress of an upload or download: how many bytes have moved, for how
+ * long, and how fast. Each attempt of a retried upload is a new transfer.
+ */
+public final class TransferProgress {
+    /**
+     * The minimum number of milliseconds between reports of a transfer.
+     */
+    public static final Integer REPORT_INTERVAL = 100;
+
+    /**
+     * The minimum number of nanoseconds between reports of a transfer.
+     */
+    private static final long REPORT_INTERVAL_NANOS =
+                                TimeUnit.MILLISECONDS.toNanos(REPORT_INTERVAL);
+
+    /**
+     * Receives the reports.
+     */
+    private final TransferListener listener;
+
+    /**
+     * The URI of the request.
+     */
+    private final URI uri;
+
+    /**
+     * Is this an upload, rather than a download?
+     */
+    private final boolean upload;
+
+    /**
+     * The number of bytes to transfer, or -1 if it isn't known.
+     */
+    private final long contentLength;
+
+    /**
+     * When the transfer started, from System.nanoTime().
+     */
+    private final long startedAt;
+
+    /**
+     * The number of bytes transferred so far.
+     */
+    private long bytes;
+
+    /**
+     * When the transfer was last reported, from System.nanoTime().
+     */
+    private long reportedAt;
+
+    /**
+     * The number of bytes transferred when the transfer was last reported.
+     */
+    private long reportedBytes;
+
+    /**
+     * The rate between the last two reports, in bytes per second.
+     */
+    private double rate;
+
+    /**
+     * Is the transfer done?
+     */
+    private boolean done;
+
+    /**
+     * Start a transfer.
+     *
+     * @param listener Receives the reports.
+     * @param uri The URI of the request.
+     * @param upload Is this an upload, rather than a download?
+     * @param contentLength The number of bytes to transfer, or -1 if it isn't
+     *                      known.
+     */
+    TransferProgress(TransferListener listener,
+                     URI uri,
+                     boolean upload,
+                     long contentLength) {
+        this.listener      = listener;
+        this.uri           = uri;
+        this.upload        = upload;
+        this.contentLength = contentLength;
+        this.startedAt     = System.nanoTime();
+        this.reportedAt    = startedAt;
+    }
+
+    /**
+     * Get the URI of the request.
+     *
+     * @return The URI.
+     */
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * Is this an upload, rather than a download?
+     *
+     * @return Is it an upload?
+     */
+    public boolean isUpload() {
+        return upload;
+    }
+
+    /**
+     * Get the number of bytes transferred so far.
+     *
+     * @return The number of bytes.
+     */
+    public long getBytesTransferred() {
+        return bytes;
+    }
+
+    /**
+     * Get the number of bytes to transfer.
+     *
+     * @return The number of bytes, or -1 if it isn't known.
+     */
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * Get how long the transfer has taken so far.
+     *
+     * @param unit The unit of the result.
+     *
+     * @return The time.
+     */
+    public long getElapsedTime(TimeUnit unit) {
+        return unit.convert(reportedAt - startedAt, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the current rate of the transfer, measured since the previous
+     * report.
+     *
+     * @return The rate in bytes per second.
+     */
+    public double getBytesPerSecond() {
+        return rate;
+    }
+
+    /**
+     * Get the average rate of the transfer since it started.
+     *
+     * @return The rate in bytes per second.
+     */
+    public double getAverageBytesPerSecond() {
+        return perSecond(bytes, reportedAt - startedAt);
+    }
+
+    /**
+     * Is the transfer done? A transfer that stopped early, such as a download
+     * that was closed before it was read to the end, is done with fewer bytes
+     * than its content length.
+     *
+     * @return Is it done?
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Count bytes transferred, and report the transfer if it hasn't been for
+     * the report interval.
+     *
+     * @param count The number of bytes.
+     *
+     * @return void
+     */
+    void add(long count) {
+        bytes += count;
+
+        long now = System.nanoTime();
+
+        if (now - reportedAt >= REPORT_INTERVAL_NANOS) {
+            report(now);
+        }
+    }
+
+    /**
+     * Mark the transfer as done, and report it. Only the first call has any
+     * effect.
+     *
+     * @return void
+     */
+    void finish() {
+        if (!done) {
+            done = true;
+            report(System.nanoTime());
+        }
+    }
+
+    /**
+     * Report the transfer to the listener, ignoring anything it throws.
+     *
+     * @param now The current time, from System.nanoTime().
+     *
+     * @return void
+     */
+    private void report(long now) {
+        rate          = perSecond(bytes - reportedBytes, now - reportedAt);
+        reportedAt    = now;
+        reportedBytes = bytes;
+
+        // a failing listener mustn't fail the transfer, or hide why it failed
+        try {
+            listener.onProgress(this);
+        } catch (RuntimeException e) {
+        }
+    }
+
+    /**
+     * Get the rate of an amount over a time.
+     *
+     * @param amount The amount.
+     * @param nanos The number of nanoseconds.
+     *
+     * @return The amount per second.
+     */
+    private static double perSecond(long amount, long nanos) {
+        return (nanos > 0)
+               ? amount * (double) TimeUnit.SECONDS.toNanos(1) / nanos
+               : 0;
+    }
+}
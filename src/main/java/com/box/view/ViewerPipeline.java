@@ -0,0 +1,440 @@
+package com.box.view;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Takes a file from upload to a viewing session in a single asynchronous
+ * call: the file is uploaded, its conversion is waited for with a
+ * ConversionWatcher, and a session is created as soon as the document is
+ * done. A thumbnail of the document can be downloaded at the same time as the
+ * session is created.
+ *
+ * The result says how long each stage took, so it's easy to see whether time
+ * goes into uploading, converting, or creating the session.
+ */
+public class ViewerPipeline {
+    /**
+     * Pipeline error codes.
+     */
+    public static final String CONVERSION_ERROR = "conversion_failed";
+
+    /**
+     * The result of taking a file through the pipeline.
+     */
+    public static final class Result {
+        /**
+         * The uploaded document.
+         */
+        private final Document document;
+
+        /**
+         * The session for the document.
+         */
+        private final Session session;
+
+        /**
+         * The thumbnail of the document, or null.
+         */
+        private final byte[] thumbnail;
+
+        /**
+         * The number of nanoseconds each stage took, or -1 for a thumbnail
+         * that wasn't downloaded.
+         */
+        private final long uploadTime;
+        private final long conversionTime;
+        private final long sessionTime;
+        private final long thumbnailTime;
+        private final long totalTime;
+
+        /**
+         * Create a result.
+         *
+         * @param converted The document and the times of the first stages.
+         * @param session The session for the document.
+         * @param sessionTime How long creating the session took.
+         * @param thumbnail The thumbnail, and how long downloading it took.
+         * @param totalTime How long the whole pipeline took.
+         */
+        Result(Converted converted,
+               Session session,
+               long sessionTime,
+               Thumbnail thumbnail,
+               long totalTime) {
+            this.document       = converted.document;
+            this.session        = session;
+            this.thumbnail      = thumbnail.content;
+            this.uploadTime     = converted.uploadTime;
+            this.conversionTime = converted.conversionTime;
+            this.sessionTime    = sessionTime;
+            this.thumbnailTime  = thumbnail.time;
+            this.totalTime      = totalTime;
+        }
+
+        /**
+         * Get the uploaded document, with its status once it was done.
+         *
+         * @return The document.
+         */
+        public Document getDocument() {
+            return document;
+        }
+
+        /**
+         * Get the session for the document.
+         *
+         * @return The session.
+         */
+        public Session getSession() {
+            return session;
+        }
+
+        /**
+         * Get the thumbnail of the document.
+         *
+         * @return The contents of the thumbnail, or null if no thumbnail was
+         *         asked for or it couldn't be downloaded.
+         */
+        public byte[] getThumbnail() {
+            return thumbnail;
+        }
+
+        /**
+         * Get how long uploading the file took.
+         *
+         * @param unit The unit of the result.
+         *
+         * @return The time.
+         */
+        public long getUploadTime(TimeUnit unit) {
+            return unit.convert(uploadTime, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Get how long the document took to convert after it was uploaded.
+         *
+         * @param unit The unit of the result.
+         *
+         * @return The time.
+         */
+        public long getConversionTime(TimeUnit unit) {
+            return unit.convert(conversionTime, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Get how long creating the session took.
+         *
+         * @param unit The unit of the result.
+         *
+         * @return The time.
+         */
+        public long getSessionTime(TimeUnit unit) {
+            return unit.convert(sessionTime, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Get how long downloading the thumbnail took.
+         *
+         * @param unit The unit of the result.
+         *
+         * @return The time, or -1 if no thumbnail was downloaded.
+         */
+        public long getThumbnailTime(TimeUnit unit) {
+            return (thumbnailTime < 0)
+                   ? -1
+                   : unit.convert(thumbnailTime, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Get how long the whole pipeline took.
+         *
+         * @param unit The unit of the result.
+         *
+         * @return The time.
+         */
+        public long getTotalTime(TimeUnit unit) {
+            return unit.convert(totalTime, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * A document that is done converting, and how long it took to get there.
+     */
+    private static final class Converted {
+        /**
+         * The document.
+         */
+        private final Document document;
+
+        /**
+         * The number of nanoseconds the upload took.
+         */
+        private final long uploadTime;
+
+        /**
+         * The number of nanoseconds the conversion took.
+         */
+        private final long conversionTime;
+
+        /**
+         * Create a converted document.
+         *
+         * @param document The document.
+         * @param uploadTime How long the upload took.
+         * @param conversionTime How long the conversion took.
+         */
+        Converted(Document document, long uploadTime, long conversionTime) {
+            this.document       = document;
+            this.uploadTime     = uploadTime;
+            this.conversionTime = conversionTime;
+        }
+    }
+
+    /**
+     * A downloaded thumbnail, and how long it took to download.
+     */
+    private static final class Thumbnail {
+        /**
+         * No thumbnail.
+         */
+        private static final Thumbnail NONE = new Thumbnail(null, -1);
+
+        /**
+         * The contents of the thumbnail.
+         */
+        private final byte[] content;
+
+        /**
+         * The number of nanoseconds the download took.
+         */
+        private final long time;
+
+        /**
+         * Create a thumbnail.
+         *
+         * @param content The contents of the thumbnail.
+         * @param time How long the download took.
+         */
+        Thumbnail(byte[] content, long time) {
+            this.content = content;
+            this.time    = time;
+        }
+    }
+
+    /**
+     * The client instance to make requests from.
+     */
+    private final BoxViewClient client;
+
+    /**
+     * Waits for the documents to finish converting.
+     */
+    private final ConversionWatcher watcher;
+
+    /**
+     * The size of the thumbnail to download, or null to not download one.
+     */
+    private final Integer thumbnailWidth;
+    private final Integer thumbnailHeight;
+
+    /**
+     * Set up a pipeline that doesn't download thumbnails.
+     *
+     * @param client The client instance to make requests from.
+     * @param watcher Waits for the documents to finish converting. This can
+     *                be a WebhookReceiver's watcher.
+     */
+    public ViewerPipeline(BoxViewClient client, ConversionWatcher watcher) {
+        this(client, watcher, null, null);
+    }
+
+    /**
+     * Set up a pipeline.
+     *
+     * @param client The client instance to make requests from.
+     * @param watcher Waits for the documents to finish converting.
+     * @param thumbnailWidth The width of the thumbnail to download in pixels,
+     *                       or null to not download one.
+     * @param thumbnailHeight The height of the thumbnail to download in
+     *                        pixels, or null to not download one.
+     */
+    public ViewerPipeline(BoxViewClient client,
+                          ConversionWatcher watcher,
+                          Integer thumbnailWidth,
+                          Integer thumbnailHeight) {
+        this.client          = client;
+        this.watcher         = watcher;
+        this.thumbnailWidth  = thumbnailWidth;
+        this.thumbnailHeight = thumbnailHeight;
+    }
+
+    /**
+     * Upload a local file, and create a session for it once it's converted.
+     *
+     * @param file The file resource to upload.
+     * @param uploadParams A key-value pair of options relating to the file
+     *                     upload, or null. See Document.upload().
+     * @param sessionParams A key-value pair of options relating to the new
+     *                      session, or null. See Document.createSession().
+     *
+     * @return A future completed with the document, its session, and how
+     *         long each stage took.
+     */
+    public CompletableFuture<Result> open(File file,
+                                          Map<String, Object> uploadParams,
+                                          Map<String, Object> sessionParams) {
+        long start = System.nanoTime();
+        return open(Document.uploadAsync(client, file, orEmpty(uploadParams)),
+                    sessionParams,
+                    start);
+    }
+
+    /**
+     * Upload a file by URL, and create a session for it once it's converted.
+     *
+     * @param url The URL of the file to upload.
+     * @param uploadParams A key-value pair of options relating to the file
+     *                     upload, or null. See Document.upload().
+     * @param sessionParams A key-value pair of options relating to the new
+     *                      session, or null. See Document.createSession().
+     *
+     * @return A future completed with the document, its session, and how
+     *         long each stage took.
+     */
+    public CompletableFuture<Result> open(String url,
+                                          Map<String, Object> uploadParams,
+                                          Map<String, Object> sessionParams) {
+        long start = System.nanoTime();
+        return open(Document.uploadAsync(client, url, orEmpty(uploadParams)),
+                    sessionParams,
+                    start);
+    }
+
+    /**
+     * Wait for an upload to be converted, then create a session and download
+     * a thumbnail at the same time.
+     *
+     * @param upload The upload.
+     * @param sessionParams A key-value pair of options relating to the new
+     *                      session, or null.
+     * @param start When the upload started, from System.nanoTime().
+     *
+     * @return A future completed with the result.
+     */
+    private CompletableFuture<Result> open(
+                                        CompletableFuture<Document> upload,
+                                        Map<String, Object> sessionParams,
+                                        long start) {
+        CompletableFuture<Converted> converted = upload.thenCompose(
+            uploaded -> {
+                long uploadTime = System.nanoTime() - start;
+
+                return watcher.watch(uploaded).thenApply(document -> {
+                    if (!"done".equals(document.getStatus())) {
+                        String message = "Document " + document.getId()
+                                         + " failed to convert.";
+                        throw new CompletionException(
+                                      new BoxViewException(message,
+                                                           CONVERSION_ERROR));
+                    }
+
+                    long conversionTime = System.nanoTime() - start
+                                          - uploadTime;
+                    return new Converted(document, uploadTime, conversionTime);
+                });
+            });
+
+        CompletableFuture<Thumbnail> thumbnail = converted.thenCompose(
+                                                     this::downloadThumbnail);
+
+        return converted.thenCompose(done -> {
+            long sessionStart                  = System.nanoTime();
+            CompletableFuture<Session> session = createSession(done.document,
+                                                               sessionParams);
+
+            // timed on its own, since the thumbnail may take longer
+            return session.thenApply(created -> System.nanoTime()
+                                                - sessionStart)
+                          .thenCombine(thumbnail, (sessionTime, downloaded) ->
+                              new Result(done,
+                                         session.join(),
+                                         sessionTime,
+                                         downloaded,
+                                         System.nanoTime() - start));
+        });
+    }
+
+    /**
+     * Create a session for a converted document.
+     *
+     * @param document The document.
+     * @param params A key-value pair of options relating to the new session,
+     *               or null.
+     *
+     * @return A future completed with the session.
+     */
+    private static CompletableFuture<Session> createSession(
+                                                Document document,
+                                                Map<String, Object> params) {
+        try {
+            return document.createSessionAsync(orEmpty(params));
+        } catch (ParseException e) {
+            CompletableFuture<Session> future =
+                                            new CompletableFuture<Session>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * Download the thumbnail of a converted document, if one was asked for.
+     * A thumbnail that can't be downloaded doesn't fail the pipeline.
+     *
+     * @param converted The converted document.
+     *
+     * @return A future completed with the thumbnail, or with no thumbnail.
+     */
+    private CompletableFuture<Thumbnail> downloadThumbnail(
+                                                    Converted converted) {
+        if (thumbnailWidth == null || thumbnailHeight == null) {
+            return CompletableFuture.completedFuture(Thumbnail.NONE);
+        }
+
+        long start = System.nanoTime();
+
+        return converted.document
+                        .thumbnailAsync(thumbnailWidth, thumbnailHeight)
+                        .thenApply(content -> {
+                            try (InputStream stream = content) {
+                                byte[] bytes = IOUtils.toByteArray(stream);
+                                return new Thumbnail(bytes,
+                                                     System.nanoTime()
+                                                     - start);
+                            } catch (IOException e) {
+                                throw new CompletionException(e);
+                            }
+                        })
+                        .exceptionally(e -> Thumbnail.NONE);
+    }
+
+    /**
+     * Get a key-value pair of options, or an empty one.
+     *
+     * @param params A key-value pair of options, or null.
+     *
+     * @return The options.
+     */
+    private static Map<String, Object> orEmpty(Map<String, Object> params) {
+        return (params != null) ? params : new HashMap<String, Object>();
+    }
+}
@@ -0,0 +1,454 @@
+package com.box.view;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Receives the View API's webhook notifications on a small embedded HTTP
+ * server, so that waiting for documents to finish converting doesn't have to
+ * poll for their status.
+ *
+ * Documents are watched through a ConversionWatcher whose first poll is only
+ * made after the notification timeout. When a document.done or
+ * document.error notification arrives for a watched document, it's polled
+ * right away instead, once, to confirm its status; a forged notification
+ * therefore can't complete a future with a status the API doesn't report. A
+ * document whose notification never arrives is simply polled once the
+ * timeout has passed.
+ *
+ * The webhook URL to register with the API is getUrl(), which includes the
+ * secret token when there is one. Notifications without the token are
+ * rejected.
+ */
+public class WebhookReceiver implements Closeable {
+    /**
+     * The defaults of the receiver.
+     */
+    public static final Integer DEFAULT_NOTIFICATION_TIMEOUT = 60 * 1000;
+
+    /**
+     * The path notifications are sent to.
+     */
+    public static final String PATH = "/box-view/webhook";
+
+    /**
+     * Webhook error codes.
+     */
+    public static final String WEBHOOK_ERROR = "webhook_error";
+
+    /**
+     * The HTTP server receiving notifications.
+     */
+    private final HttpServer server;
+
+    /**
+     * Watches the documents, and polls the ones that haven't been notified.
+     */
+    private final ConversionWatcher watcher;
+
+    /**
+     * Was the watcher created by this instance?
+     */
+    private final boolean ownsWatcher;
+
+    /**
+     * The secret token notifications must carry, or null.
+     */
+    private final byte[] token;
+
+    /**
+     * The number of notifications accepted.
+     */
+    private final AtomicLong notifications = new AtomicLong();
+
+    /**
+     * The number of notifications rejected.
+     */
+    private final AtomicLong rejections = new AtomicLong();
+
+    /**
+     * Instantiate the receiver, polling documents that haven't been notified
+     * after the default notification timeout.
+     *
+     * @param client The client instance to make requests from.
+     * @param address The address to listen on. Use port 0 for any free port.
+     * @param token A secret that notifications must carry in the 'token'
+     *              query param, or null to accept any notification.
+     *
+     * @throws BoxViewException
+     */
+    public WebhookReceiver(BoxViewClient client,
+                           InetSocketAddress address,
+                           String token)
+           throws BoxViewException {
+        this(new ConversionWatcher(client,
+                                   DEFAULT_NOTIFICATION_TIMEOUT,
+                                   DEFAULT_NOTIFICATION_TIMEOUT,
+                                   ConversionWatcher.DEFAULT_MAX_IN_FLIGHT,
+                                   ConversionWatcher
+                                   .DEFAULT_REQUESTS_PER_SECOND),
+             true,
+             address,
+             token);
+    }
+
+    /**
+     * Instantiate the receiver with an existing watcher. The first poll of
+     * each document is only made after the watcher's initial interval, so
+     * that should be as long as notifications may take to arrive.
+     *
+     * @param watcher The watcher to watch the documents with. It isn't closed
+     *                when the receiver is.
+     * @param address The address to listen on. Use port 0 for any free port.
+     * @param token A secret that notifications must carry in the 'token'
+     *              query param, or null to accept any notification.
+     *
+     * @throws BoxViewException
+     */
+    public WebhookReceiver(ConversionWatcher watcher,
+                           InetSocketAddress address,
+                           String token)
+           throws BoxViewException {
+        this(watcher, false, address, token);
+    }
+
+    /**
+     * Instantiate the receiver.
+     *
+     * @param watcher The watcher to watch the documents with.
+     * @param ownsWatcher Should the watcher be closed with the receiver?
+     * @param address The address to listen on.
+     * @param token The secret token, or null.
+     *
+     * @throws BoxViewException
+     */
+    private WebhookReceiver(ConversionWatcher watcher,
+                            boolean ownsWatcher,
+                            InetSocketAddress address,
+                            String token)
+            throws BoxViewException {
+        this.watcher     = watcher;
+        this.ownsWatcher = ownsWatcher;
+        this.token       = (token != null)
+                           ? token.getBytes(StandardCharsets.UTF_8)
+                           : null;
+
+        try {
+            server = HttpServer.create(address, 0);
+        } catch (IOException e) {
+            if (ownsWatcher) {
+                watcher.close();
+            }
+
+            throw new BoxViewException(e.getMessage(), WEBHOOK_ERROR);
+        }
+
+        server.createContext(PATH, this::handle);
+    }
+
+    /**
+     * Start receiving notifications.
+     *
+     * @return void
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop receiving notifications, and close the watcher if it was created
+     * by this instance.
+     *
+     * @return void
+     */
+    public void close() {
+        server.stop(0);
+
+        if (ownsWatcher) {
+            watcher.close();
+        }
+    }
+
+    /**
+     * Get the address the receiver is listening on.
+     *
+     * @return The address, with the actual port.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Get the number of notifications accepted.
+     *
+     * @return The number of notifications.
+     */
+    public long getNotificationCount() {
+        return notifications.get();
+    }
+
+    /**
+     * Get the number of notifications rejected, because they didn't carry the
+     * token or weren't in a valid format.
+     *
+     * @return The number of notifications.
+     */
+    public long getRejectionCount() {
+        return rejections.get();
+    }
+
+    /**
+     * Get the webhook URL to register with the API.
+     *
+     * @param host The host name the API can reach this receiver at.
+     *
+     * @return The URL, including the token.
+     * @throws UnsupportedEncodingException
+     */
+    public String getUrl(String host) throws UnsupportedEncodingException {
+        String url = "http://" + host + ":" + getAddress().getPort() + PATH;
+
+        if (token != null) {
+            url += "?token=" + URLEncoder.encode(
+                                   new String(token, StandardCharsets.UTF_8),
+                                   "UTF-8");
+        }
+
+        return url;
+    }
+
+    /**
+     * Wait for a document to finish converting.
+     *
+     * @param document The document, such as one that was just uploaded.
+     *
+     * @return A future completed with the document once its status is done or
+     *         error.
+     */
+    public CompletableFuture<Document> watch(Document document) {
+        return watcher.watch(document);
+    }
+
+    /**
+     * Wait for a document to finish converting.
+     *
+     * @param id The document ID.
+     *
+     * @return A future completed with the document once its status is done or
+     *         error.
+     */
+    public CompletableFuture<Document> watch(String id) {
+        return watcher.watch(id);
+    }
+
+    /**
+     * Handle a request to the webhook path.
+     *
+     * @param exchange The request and its response.
+     *
+     * @return void
+     * @throws IOException
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            int status;
+
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                status = 405;
+            } else if (!hasToken(exchange.getRequestURI())) {
+                status = 403;
+            } else {
+                List<String> ids = readDocumentIds(
+                                       exchange.getRequestBody());
+                status           = (ids != null) ? 200 : 400;
+
+                if (ids != null) {
+                    for (String id : ids) {
+                        watcher.wake(id);
+                    }
+                }
+            }
+
+            if (status == 200) {
+                notifications.incrementAndGet();
+            } else {
+                rejections.incrementAndGet();
+            }
+
+            exchange.sendResponseHeaders(status, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Does a request carry the secret token?
+     *
+     * @param uri The URI of the request.
+     *
+     * @return Does it carry the token, or is there no token?
+     * @throws UnsupportedEncodingException
+     */
+    private boolean hasToken(URI uri) throws UnsupportedEncodingException {
+        if (token == null) {
+            return true;
+        }
+
+        String query = uri.getRawQuery();
+
+        if (query == null) {
+            return false;
+        }
+
+        for (String param : query.split("&")) {
+            if (!param.startsWith("token=")) {
+                continue;
+            }
+
+            try {
+                String value = URLDecoder.decode(param.substring(6), "UTF-8");
+
+                // compared in constant time, so the token can't be guessed
+                // from how long the comparison takes
+                return MessageDigest.isEqual(
+                           token,
+                           value.getBytes(StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Read the IDs of the documents that finished converting from the body of
+     * a notification. The body is a notification object, or an array of
+     * them, such as:
+     *
+     *   {"type": "document.done", "data": {"type": "document", "id": "..."}}
+     *
+     * @param body The body of the request.
+     *
+     * @return The document IDs, or null if the body isn't in a valid format.
+     * @throws IOException
+     */
+    private static List<String> readDocumentIds(InputStream body)
+                                throws IOException {
+        List<String> ids = new ArrayList<String>();
+
+        try (JsonReader reader = new JsonReader(
+                                     new InputStreamReader(
+                                         body,
+                                         StandardCharsets.UTF_8))) {
+            if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+
+                while (reader.hasNext()) {
+                    readNotification(reader, ids);
+                }
+
+                reader.endArray();
+            } else {
+                readNotification(reader, ids);
+            }
+        } catch (IllegalStateException e) {
+            return null;
+        } catch (JsonParseException e) {
+            return null;
+        } catch (MalformedJsonException e) {
+            return null;
+        } catch (EOFException e) {
+            // a truncated body is malformed, rather than a failure to read it
+            return null;
+        }
+
+        return ids;
+    }
+
+    /**
+     * Read a single notification, and add the ID of its document if it says
+     * the document finished converting.
+     *
+     * @param reader The JSON reader, positioned at the notification.
+     * @param ids The document IDs to add to.
+     *
+     * @return void
+     * @throws IOException
+     */
+    private static void readNotification(JsonReader reader, List<String> ids)
+                        throws IOException {
+        String type = null;
+        String id   = null;
+
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+
+            if (field.equals("type") && reader.peek() == JsonToken.STRING) {
+                type = reader.nextString();
+            } else if (field.equals("data")
+                           && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                id = readDataId(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+
+        reader.endObject();
+
+        if (id != null
+                && ("document.done".equals(type)
+                    || "document.error".equals(type))) {
+            ids.add(id);
+        }
+    }
+
+    /**
+     * Read the ID of the document a notification is about.
+     *
+     * @param reader The JSON reader, positioned at the notification's data.
+     *
+     * @return The document ID, or null.
+     * @throws IOException
+     */
+    private static String readDataId(JsonReader reader) throws IOException {
+        String id = null;
+
+        reader.beginObject();
+
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("id")
+                    && reader.peek() == JsonToken.STRING) {
+                id = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+
+        reader.endObject();
+        return id;
+    }
+}